@@ -0,0 +1,71 @@
+package com.company;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap allocated by the ViterbiDecoder output path once the output buffer has grown to size.
+ * Read gc.alloc.rate.norm, the bytes per operation -prof gc adds (Benchmarks always does):
+ * it is expected to be 0, or within a few bytes of it.
+ *
+ * decodeIS95 decodes a whole size × size image at 1 % channel errors into a reused buffer,
+ * decodeStream feeds the same code-text through beginStream(), decodeStream() and endStream().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class AllocationBenchmark
+{
+    @Param({"60"})
+    public int decodingDepth;
+
+    @Param({"100"})
+    public int size;
+
+    private BitBuffer      codeBits;
+    private ViterbiDecoder decoder;
+    private BitBuffer      plainBits;
+
+    @Setup
+    public void setup()
+    {
+        IEncoder encoder = new EncoderIS95();
+        codeBits = SyntheticImages.noisyCode(SyntheticImages.random(size, size), encoder, 100);
+
+        decoder = new ViterbiDecoder(encoder);
+        decoder.setDecodingDepth(decodingDepth);
+        decoder.setPackedSurvivors(true);
+        plainBits = new BitBuffer();
+    }
+
+    @Benchmark
+    public BitBuffer decodeIS95()
+    {
+        decoder.decodeIS95(codeBits, size * size, plainBits);
+        return plainBits;
+    }
+
+    @Benchmark
+    public BitBuffer decodeStream()
+    {
+        plainBits.clear();
+        decoder.beginStream();
+        decoder.decodeStream(codeBits, plainBits);
+        decoder.endStream(plainBits);
+        return plainBits;
+    }
+}
@@ -0,0 +1,113 @@
+package com.company;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A batch of frames × size × size thumbnails at 1 % channel errors, decoded one at a time by a new ViterbiDecoder each
+ * (perFrameDecoders), by a BatchDecoder on threads platform threads (batch) or MultiFrameDecoder.LANES at a time
+ * by one MultiFrameDecoder on the calling thread (multiFrame). Scores are batches per second.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class BatchDecoderBenchmark
+{
+    @Param({"256"})
+    public int frames;
+
+    @Param({"16", "32"})
+    public int size;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"is95"})
+    public String code;  // see ConvolutionalEncoder.forName()
+
+    private BatchDecoder      batch;
+    private List<BitBuffer>   codeTexts;
+    private IEncoder          encoder;
+    private ExecutorService   executor;
+    private MultiFrameDecoder multiFrame;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        encoder = ConvolutionalEncoder.forName(code);
+        BitBuffer frame = SyntheticImages.noisyCode(SyntheticImages.random(size, size), encoder, 100);
+        codeTexts = new ArrayList<>(frames);
+        for (int i = 0; i < frames; ++i) {
+            codeTexts.add(frame);  // only read, so all jobs may share it
+        }
+        executor = Executors.newFixedThreadPool(threads);
+        batch = new BatchDecoder(encoder, 60, ViterbiDecoder::new, null, executor);
+        multiFrame = new MultiFrameDecoder(encoder);
+        multiFrame.setDecodingDepth(60);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long perFrameDecoders()
+    {
+        long bits = 0;
+        for (BitBuffer codeBits : codeTexts) {
+            IDecoder decoder = new ViterbiDecoder(encoder);
+            decoder.setDecodingDepth(60);
+            BitBuffer plainBits = new BitBuffer();
+            decoder.decodeIS95(codeBits, size * size, plainBits);
+            bits += plainBits.length();
+        }
+        return bits;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long batch()
+    {
+        long bits = 0;
+        for (CompletableFuture<BatchDecoder.Result> result : batch.submitAll(codeTexts, size * size)) {
+            bits += result.join().plainBits().length();
+        }
+        return bits;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long multiFrame()
+    {
+        long bits = 0;
+        for (BitBuffer plainBits : multiFrame.decodeAll(codeTexts, size * size)) {
+            bits += plainBits.length();
+        }
+        return bits;
+    }
+}
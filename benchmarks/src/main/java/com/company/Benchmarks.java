@@ -0,0 +1,23 @@
+package com.company;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar: the usual JMH command line, with the GC profiler always on,
+ * so every result also has gc.alloc.rate.norm, the heap bytes allocated per operation.
+ *
+ *   java -jar benchmarks/target/benchmarks.jar               all benchmarks
+ *   java -jar benchmarks/target/benchmarks.jar Decoder -p decodingDepth=60
+ */
+public class Benchmarks
+{
+    public static void main(String[] args) throws Exception
+    {
+        new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+                                       .addProfiler(GCProfiler.class)
+                                       .build()).run();
+    }
+}
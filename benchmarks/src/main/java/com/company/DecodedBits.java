@@ -0,0 +1,23 @@
+package com.company;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Plain-text bits decoded, reported by JMH next to the score as decoded bits per second.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class DecodedBits
+{
+    public long decodedBits;
+
+    @Setup(Level.Iteration)
+    public void reset()
+    {
+        decodedBits = 0;
+    }
+}
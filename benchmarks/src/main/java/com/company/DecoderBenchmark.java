@@ -0,0 +1,91 @@
+package com.company;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import static com.company.ViterbiBMP.BITS_PER_PIXEL;
+
+/**
+ * ViterbiDecoder.decodeIS95() of a size × size image at 1 % channel errors, across decoding depths.
+ *
+ * decodeIS95 decodes the whole image into a reused buffer; decodedBits is the throughput in decoded bits per second.
+ * decodeBlock decodes one image row as a stream of its own and samples the time of every call,
+ * so its p0.99 is the 99th percentile latency of a block.
+ * The fork adds jdk.incubator.vector, so the vector ACS engine is measured when the CPU supports it.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class DecoderBenchmark
+{
+    @Param({"8", "32", "60", "128"})
+    public int decodingDepth;
+
+    @Param({"32", "100", "320"})
+    public int size;
+
+    @Param({"is95"})
+    public String code;  // see ConvolutionalEncoder.forName(), e.g. -p code=is95,is95-half,k7
+
+    private BitBuffer      codeBits;
+    private ViterbiDecoder decoder;
+    private int            nextRow;
+    private BitBuffer      plainBits;
+    private BitBuffer[]    rows;  // code-text of every image row
+
+    @Setup
+    public void setup()
+    {
+        IEncoder encoder = ConvolutionalEncoder.forName(code);
+        BufferedImage img = SyntheticImages.random(size, size);
+        codeBits = SyntheticImages.noisyCode(img, encoder, 100);
+
+        int rowBits = size * BITS_PER_PIXEL * encoder.outputLength();
+        rows = new BitBuffer[size];
+        for (int h = 0; h < size; ++h) {
+            rows[h] = new BitBuffer(rowBits);
+            rows[h].append(codeBits, h * rowBits, rowBits);
+        }
+
+        decoder = new ViterbiDecoder(encoder);
+        decoder.setDecodingDepth(decodingDepth);
+        decoder.setPackedSurvivors(true);
+        plainBits = new BitBuffer();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public BitBuffer decodeIS95(DecodedBits counter)
+    {
+        decoder.decodeIS95(codeBits, size * size, plainBits);
+        counter.decodedBits += plainBits.length();
+        return plainBits;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public BitBuffer decodeBlock()
+    {
+        plainBits.clear();
+        decoder.beginStream();
+        decoder.decodeStream(rows[nextRow], plainBits);
+        decoder.endStream(plainBits);
+        nextRow = (nextRow + 1) % rows.length;
+        return plainBits;
+    }
+}
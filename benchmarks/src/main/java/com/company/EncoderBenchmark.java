@@ -0,0 +1,54 @@
+package com.company;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IEncoder.encode() of a size × size image into a reused buffer, IS-95 rate 1/3 unless another code is given.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncoderBenchmark
+{
+    @Param({"32", "100", "320"})
+    public int size;
+
+    @Param({"is95"})
+    public String code;  // see ConvolutionalEncoder.forName(), e.g. -p code=is95,is95-half,k7
+
+    private BitBuffer     codeBits;
+    private IEncoder      encoder;
+    private BufferedImage img;
+
+    @Setup
+    public void setup()
+    {
+        img = SyntheticImages.random(size, size);
+        encoder = ConvolutionalEncoder.forName(code);
+        codeBits = new BitBuffer();
+    }
+
+    @Benchmark
+    public BitBuffer encode()
+    {
+        codeBits.clear();
+        encoder.encode(img, codeBits);
+        return codeBits;
+    }
+}
@@ -0,0 +1,57 @@
+package com.company;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NoiseGenerator over the code-text of a size × size image, drawing every bit or skipping to the next error.
+ * noisifyChunk() is what noisify() does apart from printing statistics, which would flood the benchmark output.
+ * The same buffer is noisified over and over, flips simply accumulate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NoiseBenchmark
+{
+    @Param({"32", "100", "320"})
+    public int size;
+
+    @Param({"10", "1000"})
+    public int errorRate;
+
+    @Param({"false", "true"})
+    public boolean geometricSkip;
+
+    private BitBuffer      codeBits;
+    private NoiseGenerator noise;
+
+    @Setup
+    public void setup()
+    {
+        codeBits = new BitBuffer();
+        new EncoderIS95().encode(SyntheticImages.random(size, size), codeBits);
+        noise = new NoiseGenerator(1);
+        noise.setErrorRate(errorRate);
+        noise.setGeometricSkip(geometricSkip);
+    }
+
+    @Benchmark
+    public BitBuffer noisify()
+    {
+        return noise.noisifyChunk(codeBits);
+    }
+}
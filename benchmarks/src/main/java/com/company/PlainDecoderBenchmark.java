@@ -0,0 +1,49 @@
+package com.company;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PlainDecoder.decodeBMP() of the packed plain-text of a size × size image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlainDecoderBenchmark
+{
+    @Param({"32", "100", "320", "1000"})
+    public int size;
+
+    private BitBuffer     plainBits;
+    private IPlainDecoder plainDecoder;
+
+    @Setup
+    public void setup()
+    {
+        plainBits = new BitBuffer();
+        new PlainEncoder().encode(SyntheticImages.random(size, size), plainBits);
+        plainDecoder = new PlainDecoder();
+    }
+
+    @Benchmark
+    public BufferedImage decodeBMP(DecodedBits counter)
+    {
+        counter.decodedBits += plainBits.length();
+        return plainDecoder.decodeBMP(plainBits, size, size);
+    }
+}
@@ -0,0 +1,107 @@
+package com.company;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.company.ViterbiBMP.BITS_PER_PIXEL;
+
+/**
+ * ViterbiBMP.runIS95() end to end on a size × size BMP in a temporary directory:
+ * read, encode, noise, codeword file write and map, decode, BMP write.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class RunIS95Benchmark
+{
+    @Param({"32", "100", "320"})
+    public int size;
+
+    @Param({"60"})
+    public int decodingDepth;
+
+    private Path       codePath;
+    private Path       dir;
+    private Path       inPath;
+    private Path       outPath;
+    private ViterbiBMP viterbi;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        dir = Files.createTempDirectory("runIS95");
+        inPath = dir.resolve("in.bmp");
+        codePath = dir.resolve("code.vcw");
+        outPath = dir.resolve("out.bmp");
+        ImageIO.write(SyntheticImages.random(size, size), "bmp", inPath.toFile());
+
+        IEncoder encoder = new EncoderIS95();
+        NoiseGenerator noise = new NoiseGenerator(1);
+        noise.setErrorRate(100);
+        noise.setGeometricSkip(true);
+        ViterbiDecoder decoder = new ViterbiDecoder(encoder);
+        decoder.setDecodingDepth(decodingDepth);
+        viterbi = new ViterbiBMP(new PlainEncoder(), new PlainDecoder(), new SilentNoise(noise), encoder, decoder);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    @Benchmark
+    public Path runIS95(DecodedBits counter)
+    {
+        viterbi.runIS95(inPath, codePath, outPath);
+        counter.decodedBits += (long) size * size * BITS_PER_PIXEL;
+        return outPath;
+    }
+
+    /*
+     * The channel without the statistics noisify() prints on every call.
+     */
+    private static final class SilentNoise implements INoiseGenerator
+    {
+        private final NoiseGenerator noise;
+
+        SilentNoise(NoiseGenerator n)
+        {
+            noise = n;
+        }
+
+        @Override public String noisify(String s) { return noise.noisify(s); }
+        @Override public BitBuffer noisify(BitBuffer bits) { return noise.noisifyChunk(bits); }
+        @Override public BitBuffer noisifyChunk(BitBuffer bits) { return noise.noisifyChunk(bits); }
+        @Override public void setErrorRate(int r) { noise.setErrorRate(r); }
+        @Override public void histogram() { noise.histogram(); }
+        @Override public long errorCount() { return noise.errorCount(); }
+        @Override public long bitCount() { return noise.bitCount(); }
+        @Override public void resetStatistics() { noise.resetStatistics(); }
+    }
+}
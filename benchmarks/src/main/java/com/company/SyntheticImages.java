@@ -0,0 +1,38 @@
+package com.company;
+
+import java.awt.image.BufferedImage;
+import java.util.SplittableRandom;
+
+/**
+ * Test images for the benchmarks. Pixels are random so the decoders see every kind of transition,
+ * and the same size always gives the same image.
+ */
+final class SyntheticImages
+{
+    private SyntheticImages() {}
+
+    static BufferedImage random(int width, int height)
+    {
+        SplittableRandom rand = new SplittableRandom(31L * width + height);
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int h = 0; h < height; ++h) {
+            for (int w = 0; w < width; ++w) {
+                img.setRGB(w, h, rand.nextInt());
+            }
+        }
+        return img;
+    }
+
+    /**
+     * @return IS-95 code-text of the image with errorRate parts per 10000 of its bits flipped
+     */
+    static BitBuffer noisyCode(BufferedImage img, IEncoder encoder, int errorRate)
+    {
+        BitBuffer code = new BitBuffer();
+        encoder.encode(img, code);
+        NoiseGenerator noise = new NoiseGenerator(img.getWidth());
+        noise.setErrorRate(errorRate);
+        noise.noisifyChunk(code);
+        return code;
+    }
+}
@@ -0,0 +1,474 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+
+/**
+ * Add-Compare-Select kernel of the Viterbi decoder.
+ *
+ * States 2j and 2j+1 both lead to states j (input 0) and j + NUM_STATES/2 (input 1),
+ * so the trellis is walked as NUM_STATES/2 radix-2 butterflies.
+ * Path metrics live in two flat arrays swapped after every step,
+ * survivors in one flat array with all states of a step next to each other.
+ * The survivor array is a ring of depth steps, so paths can be extended without restarting
+ * as long as tracebacks never reach further back than depth steps.
+ *
+ * Branch metrics are integers. Hard symbols index the table of Hamming distances StateTransitionLUT builds once per code,
+ * soft symbols come as one metric per codeword, spread over the branches with its table of branch codewords.
+ *
+ * Survivors are kept either as the predecessor node of every state,
+ * or packed as one decision bit per state: the lowest bit of the predecessor,
+ * which is the only bit of it not already known from the state itself.
+ *
+ * Path metrics only ever grow, so they are kept relative to an offset: once state 0 passes RENORMALIZE_AT,
+ * the lowest metric is subtracted from all of them and added to the offset. Metrics of a trellis never spread
+ * further than DELAY steps of the largest branch metric, so this bounds them on endless streams,
+ * and narrower metrics (NarrowAcsEngine, VectorAcsEngine) only need a lower threshold.
+ *
+ * create() picks VectorAcsEngine when the jdk.incubator.vector module is available, this scalar engine otherwise.
+ */
+public class AcsEngine
+{
+    private static final int RENORMALIZE_AT = Integer.MAX_VALUE / 4;
+
+    private final int     DELAY;
+    private final int     GROUP;            // butterflies whose decisions are gathered in one long
+    private final int     HALF_STATES;
+    private final int     MASK;
+    private final int     NUM_STATES;
+    private final int     WORDS_PER_STEP;
+    private       int     column;           // ring position the next step is stored at
+    private       long[]  decisions;        // [column * WORDS_PER_STEP + state / 64] bit state % 64 is the lowest bit of predecessor
+    private       int     depth;
+    private       int[]   mergeNext;        // states of one step back, for mergeDepth()
+    private       int[]   mergeSeen;        // [state] last mergeDepth() step the state was reached at
+    private       int[]   mergeStates;
+    private       int     mergeStep;
+    private       int[]   metric;
+    private       int[]   nextMetric;
+    private       int     offset;           // added to every stored metric
+    private       boolean packedSurvivors;
+    private final int[]   softRow;          // branch metrics of the current soft symbol, in butterfly order
+    private       long    renormalizations;
+    private       int     step;             // steps made since start()
+    private       int[]   survivors;        // [column * NUM_STATES + state] predecessor of state
+    private final StateTransitionLUT transitions;  // shared branch codewords and metrics
+
+    /**
+     * Engine for the encoder, vectorized when the JVM runs with --add-modules jdk.incubator.vector
+     * and the trellis suits the vector width. -Dviterbi.scalar=true forces the scalar engine.
+     */
+    public static AcsEngine create(IEncoder encoder, StateTransitionLUT transitions)
+    {
+        if (!Boolean.getBoolean("viterbi.scalar") && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // by name, so this class loads without the incubator module
+                return (AcsEngine) Class.forName("com.company.VectorAcsEngine")
+                                        .getConstructor(IEncoder.class, StateTransitionLUT.class)
+                                        .newInstance(encoder, transitions);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // trellis does not fit the vector width, or the module cannot be linked: stay scalar
+            }
+        }
+        return new AcsEngine(encoder, transitions);
+    }
+
+    /**
+     * Engine keeping path metrics in the given number of bits.
+     * 16 bits are vectorized like create(IEncoder, StateTransitionLUT) when possible.
+     * 8 bits only leave room for hard decision branch metrics.
+     *
+     * @param metricBits 32, 16 or 8
+     */
+    public static AcsEngine create(IEncoder encoder, StateTransitionLUT transitions, int metricBits) throws InvalidParameterException
+    {
+        switch (metricBits) {
+            case Integer.SIZE:
+                return new AcsEngine(encoder, transitions);
+            case Short.SIZE:
+                AcsEngine acs = create(encoder, transitions);
+                return acs.metricBits() == Short.SIZE ? acs : new NarrowAcsEngine(encoder, transitions, Short.SIZE);
+            case Byte.SIZE:
+                return new NarrowAcsEngine(encoder, transitions, Byte.SIZE);
+            default:
+                throw new InvalidParameterException("Path metrics must have 32, 16 or 8 bits!");
+        }
+    }
+
+    public AcsEngine(IEncoder encoder, StateTransitionLUT transitions)
+    {
+        DELAY       = encoder.delay();
+        NUM_STATES  = 1 << DELAY;
+        HALF_STATES = NUM_STATES >>> 1;
+        MASK        = NUM_STATES - 1;
+        GROUP       = Math.min(Long.SIZE, HALF_STATES);
+        WORDS_PER_STEP = (NUM_STATES + Long.SIZE - 1) / Long.SIZE;
+        metric      = new int[NUM_STATES];
+        nextMetric  = new int[NUM_STATES];
+        softRow     = new int[2 * NUM_STATES];
+        this.transitions = transitions;
+    }
+
+    /**
+     * @param d Number of steps survivors are kept for, i.e. the longest traceback
+     */
+    public void setDepth(int d)
+    {
+        depth = d;
+        allocateSurvivors();
+    }
+
+    /**
+     * Keep one decision bit per state and step (WORDS_PER_STEP longs) instead of an int predecessor per state.
+     * 32 times less survivor memory, and the same decoded bits.
+     */
+    public void setPackedSurvivors(boolean p)
+    {
+        packedSurvivors = p;
+        allocateSurvivors();
+    }
+
+    public int depth() { return depth; }
+
+    /**
+     * @return Bits per path metric in the ACS kernel
+     */
+    public int metricBits() { return Integer.SIZE; }
+
+    /**
+     * @return How many times path metrics were brought back down since the engine was made
+     */
+    public long renormalizations() { return renormalizations; }
+
+    public boolean packedSurvivors() { return packedSurvivors; }
+
+    /**
+     * Start a new path search. Only the starting node is reachable.
+     *
+     * @param startingNode State the encoder is known to be in
+     * @param unreachable Metric of every other state. Must exceed any metric a real path can reach in depth steps.
+     */
+    public void start(int startingNode, int unreachable)
+    {
+        Arrays.fill(metric, unreachable);
+        metric[startingNode] = 0;
+        offset = 0;
+        restart();
+    }
+
+    /**
+     * Extend all paths by one received symbol. On a tie the path through the odd predecessor wins.
+     *
+     * @param symbol outputLength() received bits, with the erasure mask of those bits above them if the symbol is punctured
+     */
+    public void step(int symbol)
+    {
+        step(transitions.branchMetrics(symbol));
+    }
+
+    /**
+     * Extend all paths by one soft symbol. On a tie the path through the odd predecessor wins.
+     *
+     * @param codewordMetrics [codeword] distance of the received soft values to every encoder output
+     */
+    public void stepSoft(int[] codewordMetrics)
+    {
+        for (int b = 0; b < softRow.length; ++b) {
+            softRow[b] = codewordMetrics[transitions.branchCodeword(b)];
+        }
+        step(softRow);
+    }
+
+    /**
+     * Extend all paths by one step.
+     *
+     * @param bm Metric of every branch, in butterfly order: 4 * j + (input << 1 | predecessor & 1) in butterfly j
+     */
+    protected void step(int[] bm)
+    {
+        if (packedSurvivors)
+            stepPacked(bm);
+        else
+            stepNodes(bm);
+
+        int[] m = metric;
+        metric = nextMetric;
+        nextMetric = m;
+        if (metric[0] > RENORMALIZE_AT) {
+            offset += subtractMinimum(metric);
+        }
+        advance();
+    }
+
+    /**
+     * @return State with the lowest path metric, the lowest numbered one on a tie
+     */
+    public int bestState()
+    {
+        int best = 0;
+        for (int state = 1; state < NUM_STATES; ++state) {
+            if (metric[state] < metric[best]) {
+                best = state;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return How much higher the second lowest path metric is than the lowest one, that of bestState.
+     *         0 on a tie: two paths are equally likely.
+     */
+    public int margin(int bestState)
+    {
+        int best = metric(bestState);
+        int second = Integer.MAX_VALUE;
+        for (int state = 0; state < NUM_STATES; ++state) {
+            if (state != bestState) second = Math.min(second, metric(state));
+        }
+        return second - best;
+    }
+
+    /**
+     * @return Path metric of state. Exact as long as it fits an int, which normalize() can ensure.
+     */
+    public int metric(int state) { return metric[state] + offset; }
+
+    public int steps() { return step; }
+
+    /**
+     * Subtract the same amount from every path metric.
+     * Decisions only depend on metric differences, so this keeps metrics bounded on endless streams.
+     */
+    public void normalize(int by)
+    {
+        offset -= by;
+    }
+
+    /**
+     * Append the input bits of the path ending in terminalNode, oldest first.
+     * One bit per step made since start(), which must not be more than depth.
+     */
+    public void traceback(int terminalNode, BitBuffer out)
+    {
+        assert step <= depth;
+        traceback(terminalNode, 0, step, out);
+    }
+
+    /**
+     * Follow the path ending in terminalNode back over the skip most recent steps,
+     * then append the input bits of the count steps before those, oldest first.
+     * skip + count must not be more than depth.
+     */
+    public void traceback(int terminalNode, int skip, int count, BitBuffer out)
+    {
+        assert skip + count <= Math.min(step, depth);
+        int state = terminalNode;
+        int c = column;
+        for (int i = 0; i < skip; ++i) {
+            c = c == 0 ? depth - 1 : c - 1;
+            state = predecessor(c, state);
+        }
+
+        int base = out.length();
+        out.setLength(base + count);
+        for (int t = count - 1; t >= 0; --t) {
+            if (state >>> DELAY - 1 != 0) {  // input bit is shifted in at the top of the state
+                out.set(base + t, 1);
+            }
+            c = c == 0 ? depth - 1 : c - 1;
+            state = predecessor(c, state);
+        }
+    }
+
+    /**
+     * How far back the survivors of all states merge into one path: every path the traceback could start from
+     * passes through the same node that many steps before the latest one. Costs about a step of the kernel per step walked,
+     * so callers sample it.
+     *
+     * @return Steps from the latest one to the merge, -1 if the paths do not merge within the steps kept
+     */
+    public int mergeDepth()
+    {
+        if (mergeSeen == null) {
+            mergeStates = new int[NUM_STATES];
+            mergeNext = new int[NUM_STATES];
+            mergeSeen = new int[NUM_STATES];
+        }
+        int[] states = mergeStates;
+        int[] next = mergeNext;
+        for (int state = 0; state < NUM_STATES; ++state) {
+            states[state] = state;
+        }
+        int count = NUM_STATES;
+        int c = column;
+        for (int i = 1; i <= Math.min(step, depth); ++i) {
+            if (++mergeStep == Integer.MAX_VALUE) {
+                Arrays.fill(mergeSeen, 0);
+                mergeStep = 1;
+            }
+            c = c == 0 ? depth - 1 : c - 1;
+            int n = 0;
+            for (int k = 0; k < count; ++k) {
+                int p = predecessor(c, states[k]);
+                if (mergeSeen[p] != mergeStep) {
+                    mergeSeen[p] = mergeStep;
+                    next[n++] = p;
+                }
+            }
+            if (n == 1) return i;
+            int[] t = states;
+            states = next;
+            next = t;
+            count = n;
+        }
+        return -1;
+    }
+
+    /**
+     * Output of the encoder on branch b, numbered like the rows of branch metrics:
+     * 4 * j + (input << 1 | predecessor & 1) in butterfly j.
+     */
+    protected int branchCodeword(int b)
+    {
+        return transitions.branchCodeword(b);
+    }
+
+    /**
+     * Store the decisions a subclass kernel made for one step and move on to the next step.
+     *
+     * @param packed WORDS_PER_STEP words, bit state % 64 of word state / 64 being the lowest bit of the predecessor of state
+     */
+    protected void storeDecisions(long[] packed)
+    {
+        if (packedSurvivors) {
+            System.arraycopy(packed, 0, decisions, column * WORDS_PER_STEP, WORDS_PER_STEP);
+        } else {
+            int s = column * NUM_STATES;
+            for (int state = 0; state < NUM_STATES; ++state) {
+                survivors[s + state] = state << 1 & MASK | (int) (packed[state >>> 6] >>> state) & 0x01;
+            }
+        }
+        advance();
+    }
+
+    /**
+     * Record a renormalization done by a subclass keeping its own metrics.
+     */
+    protected void countRenormalization()
+    {
+        ++renormalizations;
+    }
+
+    /**
+     * Restart the step count and the survivor ring, for subclasses keeping their own metrics.
+     */
+    protected void restart()
+    {
+        column = 0;
+        step = 0;
+    }
+
+    /*
+     * Subtract the lowest metric from all of them.
+     * Nothing happens while a state right after start() still has metric 0.
+     */
+    private int subtractMinimum(int[] m)
+    {
+        int min = m[0];
+        for (int state = 1; state < NUM_STATES; ++state) {
+            min = Math.min(min, m[state]);
+        }
+        if (min == 0) return 0;
+
+        for (int state = 0; state < NUM_STATES; ++state) {
+            m[state] -= min;
+        }
+        countRenormalization();
+        return min;
+    }
+
+    private void advance()
+    {
+        column = column + 1 == depth ? 0 : column + 1;
+        ++step;
+    }
+
+    private int predecessor(int c, int state)
+    {
+        if (packedSurvivors)
+            return state << 1 & MASK | (int) (decisions[c * WORDS_PER_STEP + (state >>> 6)] >>> state) & 0x01;
+        else
+            return survivors[c * NUM_STATES + state];
+    }
+
+    private void allocateSurvivors()
+    {
+        if (packedSurvivors) {
+            decisions = new long[depth * WORDS_PER_STEP];
+            survivors = null;
+        } else {
+            survivors = new int[depth * NUM_STATES];
+            decisions = null;
+        }
+    }
+
+    private void stepNodes(int[] bm)
+    {
+        int[] m  = metric;
+        int[] nm = nextMetric;
+        int   s  = column * NUM_STATES;
+
+        for (int j = 0, b = 0; j < HALF_STATES; ++j, b += 4) {
+            int m0 = m[2 * j];
+            int m1 = m[2 * j + 1];
+
+            // input 0 → state j
+            int a0 = m0 + bm[b];
+            int a1 = m1 + bm[b + 1];
+            int d  = a1 - a0 - 1 >>> 31;  // 0 if a0 < a1, kept branch free as decisions on noisy input are unpredictable
+            nm[j]            = a0 + (a1 - a0 & -d);
+            survivors[s + j] = 2 * j | d;
+
+            // input 1 → state j + HALF_STATES
+            int c0 = m0 + bm[b + 2];
+            int c1 = m1 + bm[b + 3];
+            d = c1 - c0 - 1 >>> 31;
+            nm[j + HALF_STATES]            = c0 + (c1 - c0 & -d);
+            survivors[s + j + HALF_STATES] = 2 * j | d;
+        }
+    }
+
+    /*
+     * Same butterflies as stepNodes(), decisions of GROUP of them at a time are gathered in a long.
+     */
+    private void stepPacked(int[] bm)
+    {
+        int[] m  = metric;
+        int[] nm = nextMetric;
+        int   s  = column * WORDS_PER_STEP;
+
+        Arrays.fill(decisions, s, s + WORDS_PER_STEP, 0);
+        for (int g = 0; g < HALF_STATES; g += GROUP) {
+            long lower = 0;  // decisions of states j
+            long upper = 0;  // decisions of states j + HALF_STATES
+            for (int j = g, b = 4 * g; j < g + GROUP; ++j, b += 4) {
+                int m0 = m[2 * j];
+                int m1 = m[2 * j + 1];
+
+                int a0 = m0 + bm[b];
+                int a1 = m1 + bm[b + 1];
+                int d  = a1 - a0 - 1 >>> 31;
+                nm[j]  = a0 + (a1 - a0 & -d);
+                lower |= (long) d << j;
+
+                int c0 = m0 + bm[b + 2];
+                int c1 = m1 + bm[b + 3];
+                d = c1 - c0 - 1 >>> 31;
+                nm[j + HALF_STATES] = c0 + (c1 - c0 & -d);
+                upper |= (long) d << j + HALF_STATES;  // shift is taken mod 64
+            }
+            decisions[s + (g >>> 6)]               |= lower;
+            decisions[s + (g + HALF_STATES >>> 6)] |= upper;
+        }
+    }
+}
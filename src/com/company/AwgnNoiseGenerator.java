@@ -0,0 +1,215 @@
+package com.company;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * BPSK over an additive white Gaussian noise channel.
+ *
+ * A 0 is sent as -1 and a 1 as +1, the receiver sees that plus Gaussian noise of standard deviation sigma.
+ * Hard output flips the bits whose received value has the wrong sign.
+ * Soft output quantizes the received value uniformly to 2^q levels between -2 and +2,
+ * so 3 bits give the usual steps of 0.5 and 1 bit is the hard decision.
+ *
+ * The noise is set either by Es/N0 or, like the other generators, by the raw bit error rate
+ * of hard decisions, which makes hard and soft decoding easy to compare on the same channel.
+ */
+public class AwgnNoiseGenerator implements ISoftNoiseGenerator
+{
+    private static final double CLIP  = 2.0;  // received values beyond ±CLIP get the outermost levels
+    private final        int    BOUND = 10000;
+
+    private       long            bitCount;
+    private       long            errorCount;
+    private       int             quantizationBits = 3;
+    private final RandomGenerator rand;
+    private       double          sigma;
+
+    /**
+     * Generator with a random seed.
+     */
+    public AwgnNoiseGenerator()
+    {
+        rand = new SplittableRandom();
+    }
+
+    /**
+     * Generator producing the same noise on every run with the same seed.
+     */
+    public AwgnNoiseGenerator(long seed)
+    {
+        rand = new SplittableRandom(seed);
+    }
+
+    /**
+     * Set the noise so that hard decisions are wrong with the given probability.
+     *
+     * @param r Raw bit error rate in parts per 10 000, below 5000.
+     */
+    @Override
+    public void setErrorRate(int r) throws InvalidParameterException
+    {
+        if (r < 0 || r >= BOUND / 2) throw new InvalidParameterException("ErrorRate must be between 0 and 4999!");
+        sigma = r == 0 ? 0 : 1 / inverseQ((double) r / BOUND);
+    }
+
+    /**
+     * @param dB Energy per channel symbol over noise density. For the rate 1/3 code Eb/N0 is 4.77 dB more.
+     */
+    public void setEsN0(double dB)
+    {
+        sigma = Math.sqrt(0.5 / Math.pow(10, dB / 10));
+    }
+
+    /**
+     * @return Es/N0 in dB of the current noise
+     */
+    public double esN0()
+    {
+        return 10 * Math.log10(0.5 / (sigma * sigma));
+    }
+
+    @Override
+    public void setQuantizationBits(int q) throws InvalidParameterException
+    {
+        if (q < 1 || q > SoftBuffer.MAX_QUANTIZATION_BITS) throw new InvalidParameterException("Quantization bits must be between 1 and " + SoftBuffer.MAX_QUANTIZATION_BITS + "!");
+        quantizationBits = q;
+    }
+
+    @Override
+    public long errorCount() { return errorCount; }
+
+    @Override
+    public long bitCount() { return bitCount; }
+
+    @Override
+    public void resetStatistics()
+    {
+        errorCount = 0;
+        bitCount = 0;
+    }
+
+    @Override
+    public String noisify(String s)
+    {
+        return noisify(BitBuffer.fromAscii(s.getBytes(StandardCharsets.US_ASCII))).toString();
+    }
+
+    @Override
+    public BitBuffer noisify(BitBuffer bits)
+    {
+        resetStatistics();
+        noisifyChunk(bits);
+        printStatistics();
+        return bits;
+    }
+
+    @Override
+    public BitBuffer noisifyChunk(BitBuffer bits)
+    {
+        bitCount += bits.length();
+        if (sigma == 0) return bits;
+
+        for (int i = 0; i < bits.length(); ++i) {
+            // the sign is wrong when the noise reaches past 0 against the sent value:
+            if (sigma * rand.nextGaussian() <= -1) {
+                bits.flip(i);
+                ++errorCount;
+            }
+        }
+        return bits;
+    }
+
+    @Override
+    public SoftBuffer noisifySoft(BitBuffer bits, SoftBuffer out)
+    {
+        if (out.quantizationBits() != quantizationBits)
+            throw new InvalidParameterException("[ AwgnNoiseGenerator ] Soft buffer has " + out.quantizationBits() +
+                                                " quantization bits, channel has " + quantizationBits + "!");
+
+        resetStatistics();
+        bitCount = bits.length();
+        int levels = 1 << quantizationBits;
+        double scale = levels / (2 * CLIP);
+        out.clear();
+        out.ensureCapacity(bits.length());
+        for (int i = 0; i < bits.length(); ++i) {
+            int bit = bits.get(i);
+            double received = 2 * bit - 1 + sigma * rand.nextGaussian();
+            int value = Math.max(0, Math.min(levels - 1, (int) Math.floor(received * scale) + levels / 2));
+            if (value >> quantizationBits - 1 != bit) ++errorCount;
+            out.append(value);
+        }
+        printStatistics();
+        return out;
+    }
+
+    /**
+     * Displays histogram of the quantized soft values received for random bits at the current noise.
+     * Allows user to visually check the levels are used sensibly.
+     */
+    @Override
+    public void histogram()
+    {
+        final int DRAWS = 1_000_000;
+
+        BitBuffer bits = new BitBuffer(DRAWS);
+        for (int i = 0; i < DRAWS; ++i) {
+            bits.append(rand.nextInt(2));
+        }
+        SoftBuffer soft = noisifySoft(bits, new SoftBuffer(quantizationBits, DRAWS));
+
+        int[] hist = new int[1 << quantizationBits];
+        for (int i = 0; i < soft.length(); ++i) {
+            ++hist[soft.get(i)];
+        }
+
+        char[] c = new char[DRAWS / 1000];
+        Arrays.fill(c, '█');
+        String barString = new String(c);
+
+        System.out.println("Receiving " + DRAWS + " random bits at Es/N0 " + (float) esN0() + " dB");
+        System.out.println("Histogram:");
+        for (int i = 0; i < hist.length; ++i) {
+            System.out.println(String.format("%2d: %7d  ", i, hist[i]) + barString.substring(0, hist[i] / 1000));
+        }
+    }
+
+    private void printStatistics()
+    {
+        System.out.println("[ AwgnNoiseGenerator ] " + bitCount + " bits in channel at Es/N0 " + (float) esN0() + " dB\n" +
+                           "[ AwgnNoiseGenerator ] " + errorCount + " hard decision errors. " +
+                           "Actual error rate: " + (float) errorCount / bitCount * 100 + "%");
+    }
+
+    /*
+     * x such that the Gaussian tail probability Q(x) = 0.5 erfc(x / √2) equals p, by bisection.
+     */
+    private static double inverseQ(double p)
+    {
+        double lo = 0;
+        double hi = 40;
+        for (int i = 0; i < 100; ++i) {
+            double mid = (lo + hi) / 2;
+            if (0.5 * erfc(mid / Math.sqrt(2)) > p)
+                lo = mid;
+            else
+                hi = mid;
+        }
+        return (lo + hi) / 2;
+    }
+
+    /*
+     * Complementary error function for x >= 0, fractional error below 1.2e-7 (Numerical Recipes erfcc).
+     */
+    private static double erfc(double x)
+    {
+        double t = 1 / (1 + 0.5 * x);
+        return t * Math.exp(-x * x - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418 +
+               t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851593 +
+               t * (-0.82215223 + t * 0.17087277)))))))));
+    }
+}
@@ -0,0 +1,218 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Thread-safe service decoding many independent code-texts at once, e.g. a batch of small images.
+ *
+ * Decoders keep the state of the code-text they decode, so a decoder is never shared: every job borrows one from a pool
+ * and gives it back when done. A pool holds at most as many decoders as jobs ever ran at the same time,
+ * each with its survivor and window buffers allocated once, so steady batches allocate only their results.
+ * All decoders share the code's StateTransitionLUT, built once by the constructor.
+ *
+ * Jobs run on the executor given, e.g. a fixed pool of platform threads or, on Java 21 and later,
+ * newVirtualThreadExecutor(). Every submit() returns a future of the decoded bits and the job's statistics.
+ */
+public class BatchDecoder implements AutoCloseable
+{
+    private final AtomicInteger                   created = new AtomicInteger();
+    private final int                             decodingDepth;
+    private final Function<IEncoder, IDecoder>    decoderFactory;
+    private final IEncoder                        encoder;
+    private final ExecutorService                 executor;
+    private final ConcurrentLinkedQueue<IDecoder> idle    = new ConcurrentLinkedQueue<>();  // decoders not in use
+    private       PipelineMetrics                 metrics;  // read by jobs, which submit() publishes it to
+    private final boolean                         ownsExecutor;  // executor is shut down by close()
+    private final PuncturePattern                 puncturing;
+
+    /**
+     * Decode on a fixed pool of one platform thread per processor with ViterbiDecoders.
+     */
+    public BatchDecoder(IEncoder e, int depth)
+    {
+        this(e, depth, ViterbiDecoder::new, null, Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()), true);
+    }
+
+    /**
+     * @param e Encoder of all code-texts, shared by all decoders
+     * @param depth Decoding depth of all decoders
+     * @param f Makes a decoder for e
+     * @param p Pattern all code-texts were punctured with and depunctured again, null for none
+     * @param ex Executor the jobs run on. The caller keeps it, close() does not shut it down.
+     */
+    public BatchDecoder(IEncoder e, int depth, Function<IEncoder, IDecoder> f, PuncturePattern p, ExecutorService ex)
+    {
+        this(e, depth, f, p, ex, false);
+    }
+
+    private BatchDecoder(IEncoder e, int depth, Function<IEncoder, IDecoder> f, PuncturePattern p, ExecutorService ex, boolean owns)
+    {
+        if (depth < 1) throw new InvalidParameterException("Decoding depth must be at least 1!");
+        if (p != null) p.checkFits(e);
+        encoder = e;
+        decodingDepth = depth;
+        decoderFactory = f;
+        puncturing = p;
+        executor = ex;
+        ownsExecutor = owns;
+        StateTransitionLUT.of(encoder);  // build the shared tables before jobs race to do it
+    }
+
+    /**
+     * @return Executor starting a virtual thread per job
+     * @throws UnsupportedOperationException before Java 21, which has no virtual threads
+     */
+    public static ExecutorService newVirtualThreadExecutor() throws UnsupportedOperationException
+    {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("[ BatchDecoder ] Virtual threads need Java 21 or later", e);
+        }
+    }
+
+    /**
+     * Decode one code-text.
+     *
+     * @param codeBits Code-text, must not change until the future completes
+     * @param numPixels Pixels of the image, decoded bits past them are dropped
+     * @return Future of the decoded bits, completed exceptionally if decoding fails
+     */
+    public CompletableFuture<Result> submit(IBitSource codeBits, int numPixels)
+    {
+        long submitted = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> decode(codeBits, numPixels, submitted), executor);
+    }
+
+    /**
+     * Decode code-texts of images of numPixels pixels each.
+     *
+     * @return Futures in the order of codeTexts
+     */
+    public List<CompletableFuture<Result>> submitAll(Collection<? extends IBitSource> codeTexts, int numPixels)
+    {
+        List<CompletableFuture<Result>> futures = new ArrayList<>(codeTexts.size());
+        for (IBitSource codeBits : codeTexts) {
+            futures.add(submit(codeBits, numPixels));
+        }
+        return futures;
+    }
+
+    /**
+     * Count every job submitted from now on into m: a "decode" span per job, and its blocks into m.decoder(),
+     * which all decoders share.
+     *
+     * @param m Metrics to add to, null for none
+     */
+    public void setMetrics(PipelineMetrics m)
+    {
+        metrics = m;
+    }
+
+    /**
+     * @return Decoders made so far, the most jobs that ran at the same time
+     */
+    public int pooledDecoders() { return created.get(); }
+
+    /**
+     * Shut down the executor if this service made it. Jobs already submitted still run.
+     */
+    @Override
+    public void close()
+    {
+        if (ownsExecutor) executor.shutdown();
+    }
+
+    private Result decode(IBitSource codeBits, int numPixels, long submitted)
+    {
+        long start = System.nanoTime();
+        IDecoder decoder = idle.poll();
+        if (decoder == null) {
+            decoder = decoderFactory.apply(encoder);
+            created.incrementAndGet();
+            decoder.setDecodingDepth(decodingDepth);
+            decoder.setPuncturing(puncturing);
+        }
+        PipelineMetrics m = metrics;
+        decoder.setMetrics(m == null ? null : m.decoder());
+        try {
+            PipelineMetrics.Span span = PipelineMetrics.begin(m, "decode");
+            BitBuffer plainBits = new BitBuffer(codeBits.length() / encoder.outputLength() + decodingDepth);
+            long renormalizations = decoder.renormalizations();
+            decoder.decodeIS95(codeBits, numPixels, plainBits);
+            PipelineMetrics.end(span, codeBits.length(), plainBits.length());
+            return new Result(plainBits, codeBits.length(), start - submitted, System.nanoTime() - start,
+                              decoder.renormalizations() - renormalizations, Thread.currentThread().getName());
+        } finally {
+            idle.offer(decoder);
+        }
+    }
+
+    /**
+     * Decoded bits of one job and what it took.
+     */
+    public static final class Result
+    {
+        private final long      codeBits;
+        private final long      decodeNanos;
+        private final BitBuffer plainBits;
+        private final long      queuedNanos;
+        private final long      renormalizations;
+        private final String    thread;
+
+        Result(BitBuffer p, long c, long q, long d, long r, String t)
+        {
+            plainBits = p;
+            codeBits = c;
+            queuedNanos = q;
+            decodeNanos = d;
+            renormalizations = r;
+            thread = t;
+        }
+
+        public BitBuffer plainBits() { return plainBits; }
+
+        /**
+         * @return Code-text bits decoded
+         */
+        public long codeBits() { return codeBits; }
+
+        /**
+         * @return Time from submit() until a thread started the job
+         */
+        public long queuedNanos() { return queuedNanos; }
+
+        /**
+         * @return Time the job took to decode, borrowing a decoder included
+         */
+        public long decodeNanos() { return decodeNanos; }
+
+        /**
+         * @return Path metric renormalizations of the job, see IDecoder.renormalizations()
+         */
+        public long renormalizations() { return renormalizations; }
+
+        /**
+         * @return Name of the thread that decoded the job
+         */
+        public String thread() { return thread; }
+
+        public double decodeBitsPerSecond() { return decodeNanos == 0 ? 0 : plainBits.length() * 1e9 / decodeNanos; }
+
+        @Override
+        public String toString()
+        {
+            return plainBits.length() + " bits decoded from " + codeBits + " in " + decodeNanos / 1000 + " us after " +
+                   queuedNanos / 1000 + " us queued on " + thread;
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package com.company;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+import static com.company.ViterbiBMP.BITS_PER_PIXEL;
+
+/**
+ * Monte Carlo sweep of the decoded bit error rate over a grid of channel error rates and decoding depths.
+ *
+ * Every trial fills a frame with random pixels, encodes it, passes it through a NoiseGenerator and decodes it
+ * once per depth, comparing the decoded bits with the sent ones in memory. No BMP or codeword file is written.
+ * Trials run in parallel on a ForkJoinPool of their own, one task per error rate and trial, and each trial
+ * draws from a seed derived from the sweep seed, the error rate and the trial number only,
+ * so the results do not depend on the number of threads or the order tasks run in.
+ * All depths of one trial decode the same noisy code-text, so differences between depths are not sampling noise.
+ * With puncturing only the bits sent go through the channel, so the channel BER is over the punctured code-text.
+ *
+ * BER confidence intervals are 95 %. Decoded errors come in bursts, so bits of one frame are not independent:
+ * the interval is taken over the per-trial BERs (normal approximation of their mean). With a single trial
+ * or no errors at all that is not possible and the Wilson score interval over all bits is used instead.
+ */
+public class BerSweep
+{
+    private static final double Z_95 = 1.959964;  // two sided 95 % quantile of the normal distribution
+
+    private final Function<IEncoder, IDecoder> decoderFactory;
+    private final IEncoder                     encoder;
+    private       int                          frameHeight = 32;
+    private       int                          frameWidth  = 32;
+    private       int                          parallelism = Runtime.getRuntime().availableProcessors();
+    private       PuncturePattern              puncturing;
+    private       long                         seed        = 1;
+    private       int                          trials      = 100;
+
+    public BerSweep(IEncoder e)
+    {
+        this(e, ViterbiDecoder::new);
+    }
+
+    /**
+     * @param e Encoder, shared by all threads, so its encode() must not keep state
+     * @param f Makes a decoder for e. Every thread gets its own decoder per depth.
+     */
+    public BerSweep(IEncoder e, Function<IEncoder, IDecoder> f)
+    {
+        encoder = e;
+        decoderFactory = f;
+    }
+
+    /**
+     * @param w Frame width in pixels
+     * @param h Frame height in pixels
+     */
+    public void setFrameSize(int w, int h)
+    {
+        if (w < 1 || h < 1) throw new InvalidParameterException("Frame must be at least 1x1 pixels!");
+        frameWidth = w;
+        frameHeight = h;
+    }
+
+    /**
+     * @param p Threads running trials
+     */
+    public void setParallelism(int p)
+    {
+        if (p < 1) throw new InvalidParameterException("Parallelism must be at least 1!");
+        parallelism = p;
+    }
+
+    /**
+     * @param p Pattern to puncture the code-text with before the channel, null for none
+     */
+    public void setPuncturing(PuncturePattern p)
+    {
+        if (p != null) p.checkFits(encoder);
+        puncturing = p;
+    }
+
+    /**
+     * @param s Seed all trial seeds are derived from. The same seed gives the same bit errors on every run.
+     */
+    public void setSeed(long s)
+    {
+        seed = s;
+    }
+
+    /**
+     * @param t Trials per error rate
+     */
+    public void setTrials(int t)
+    {
+        if (t < 1) throw new InvalidParameterException("Trials must be at least 1!");
+        trials = t;
+    }
+
+    /**
+     * Run trials() trials for every error rate and decode each at every depth.
+     *
+     * @param errorRates Channel error rates in parts per 10 000
+     * @param depths Decoding depths
+     * @return One point per error rate and depth, error rates in the outer order
+     */
+    public List<Point> run(int[] errorRates, int[] depths)
+    {
+        if (errorRates.length == 0 || depths.length == 0)
+            throw new InvalidParameterException("Sweep needs at least one error rate and one depth!");
+        for (int r : errorRates) {
+            if (r < 0 || r > 10000) throw new InvalidParameterException("ErrorRate must be between 0 and 10000!");
+        }
+
+        long[][][] errors        = new long[errorRates.length][depths.length][trials];
+        long[][][] decodeNanos   = new long[errorRates.length][depths.length][trials];
+        long[][]   channelErrors = new long[errorRates.length][trials];
+
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> new Worker(depths));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long start = System.nanoTime();
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(errorRates.length * trials);
+            for (int r = 0; r < errorRates.length; ++r) {
+                for (int t = 0; t < trials; ++t) {
+                    int rate = r;
+                    int trial = t;
+                    tasks.add(pool.submit(() -> trial(workers.get(), errorRates[rate], trial,
+                                                      errors[rate], decodeNanos[rate], channelErrors[rate])));
+                }
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        List<Point> points = new ArrayList<>(errorRates.length * depths.length);
+        long frameBits = (long) frameWidth * frameHeight * BITS_PER_PIXEL;
+        long channelBits = frameBits * encoder.outputLength();
+        if (puncturing != null) channelBits = puncturing.puncturedLength(channelBits);
+        for (int r = 0; r < errorRates.length; ++r) {
+            long channelErrorSum = Arrays.stream(channelErrors[r]).sum();
+            for (int d = 0; d < depths.length; ++d) {
+                points.add(new Point(errorRates[r], depths[d], trials, frameBits, errors[r][d],
+                                     channelBits * trials, channelErrorSum, Arrays.stream(decodeNanos[r][d]).sum()));
+            }
+        }
+
+        System.out.println("[ BerSweep ] " + errorRates.length * trials + " trials of " + frameWidth + "x" + frameHeight +
+                           " pixels at " + depths.length + " depths on " + parallelism + " threads in " +
+                           elapsed / 1_000_000 + " ms, " +
+                           (double) frameBits * errorRates.length * depths.length * trials / elapsed * 1e3 + " decoded Mbit/s");
+        return points;
+    }
+
+    /**
+     * @param errorRate Channel error rate in parts per 10 000
+     * @param targetBer Highest acceptable decoded BER
+     * @return The point at errorRate with the highest decoding throughput whose whole confidence interval
+     * is at most targetBer, or null if no depth is good enough
+     */
+    public static Point cheapest(List<Point> points, int errorRate, double targetBer)
+    {
+        Point best = null;
+        for (Point p : points) {
+            if (p.errorRate() != errorRate || p.berHigh() > targetBer) continue;
+            if (best == null || p.decodeBitsPerSecond() > best.decodeBitsPerSecond()) best = p;
+        }
+        return best;
+    }
+
+    public static void writeCsv(Path path, List<Point> points) throws IOException
+    {
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            out.write("errorRate,channelBer,depth,trials,bits,bitErrors,ber,berLow,berHigh,frameErrorRate,decodeBitsPerSecond");
+            out.newLine();
+            for (Point p : points) {
+                out.write(p.errorRate() + "," + p.channelBer() + "," + p.depth() + "," + p.trials() + "," + p.bits() + "," +
+                          p.bitErrors() + "," + p.ber() + "," + p.berLow() + "," + p.berHigh() + "," +
+                          p.frameErrorRate() + "," + p.decodeBitsPerSecond());
+                out.newLine();
+            }
+        }
+    }
+
+    public static void writeJson(Path path, List<Point> points) throws IOException
+    {
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            out.write("[");
+            for (int i = 0; i < points.size(); ++i) {
+                Point p = points.get(i);
+                out.newLine();
+                out.write("  {\"errorRate\": " + p.errorRate() + ", \"channelBer\": " + p.channelBer() +
+                          ", \"depth\": " + p.depth() + ", \"trials\": " + p.trials() + ", \"bits\": " + p.bits() +
+                          ", \"bitErrors\": " + p.bitErrors() + ", \"ber\": " + p.ber() +
+                          ", \"berLow\": " + p.berLow() + ", \"berHigh\": " + p.berHigh() +
+                          ", \"frameErrorRate\": " + p.frameErrorRate() +
+                          ", \"decodeBitsPerSecond\": " + p.decodeBitsPerSecond() + "}");
+                if (i + 1 < points.size()) out.write(",");
+            }
+            out.newLine();
+            out.write("]");
+            out.newLine();
+        }
+    }
+
+    /**
+     * Arguments: error rates (comma separated, parts per 10 000), decoding depths (comma separated), trials,
+     * output file (.json for JSON, otherwise CSV), frame width, frame height, target BER, threads, seed,
+     * code (see ConvolutionalEncoder.forName()), puncturing rate ("2/3", "3/4", or "1" for none).
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int[] errorRates = {10, 50, 100, 300};
+        if (args.length > 0) errorRates = parseList(args[0]);
+
+        int[] depths = {8, 16, 32, 60, 120};
+        if (args.length > 1) depths = parseList(args[1]);
+
+        int trials = 100;
+        if (args.length > 2) trials = Integer.parseInt(args[2]);
+
+        Path outPath = Paths.get("ber-sweep.csv");
+        if (args.length > 3) outPath = Paths.get(args[3]);
+
+        int width = 32;
+        if (args.length > 4) width = Integer.parseInt(args[4]);
+
+        int height = 32;
+        if (args.length > 5) height = Integer.parseInt(args[5]);
+
+        double targetBer = 1e-5;
+        if (args.length > 6) targetBer = Double.parseDouble(args[6]);
+
+        String code = "is95";
+        if (args.length > 9) code = args[9];
+
+        BerSweep sweep = new BerSweep(ConvolutionalEncoder.forName(code));
+        if (args.length > 7) sweep.setParallelism(Integer.parseInt(args[7]));
+        if (args.length > 8) sweep.setSeed(Long.parseLong(args[8]));
+        if (args.length > 10 && !args[10].equals("1"))
+            sweep.setPuncturing(PuncturePattern.forRate(ConvolutionalEncoder.forName(code), args[10]));
+        sweep.setTrials(trials);
+        sweep.setFrameSize(width, height);
+
+        List<Point> points = sweep.run(errorRates, depths);
+        if (outPath.toString().endsWith(".json"))
+            writeJson(outPath, points);
+        else
+            writeCsv(outPath, points);
+
+        for (int r : errorRates) {
+            Point p = cheapest(points, r, targetBer);
+            if (p == null)
+                System.out.println("[ BerSweep ] Error rate " + r + ": no depth reaches BER " + targetBer);
+            else
+                System.out.println("[ BerSweep ] Error rate " + r + ": depth " + p.depth() + ", BER " + p.ber() +
+                                   " (at most " + p.berHigh() + "), " + p.decodeBitsPerSecond() / 1e6 + " decoded Mbit/s");
+        }
+    }
+
+    private static int[] parseList(String s)
+    {
+        return Arrays.stream(s.split(",")).mapToInt(v -> Integer.parseInt(v.trim())).toArray();
+    }
+
+    /*
+     * One trial at one error rate: a random frame through the channel, decoded at every depth of the worker.
+     * Every trial writes its own slot of the result arrays, so no locking is needed.
+     */
+    private void trial(Worker w, int errorRate, int trial, long[][] errors, long[][] decodeNanos, long[] channelErrors)
+    {
+        SplittableRandom rand = new SplittableRandom(trialSeed(errorRate, trial));
+        w.plainBits.clear();
+        for (int i = 0; i < w.pixels.length; ++i) {
+            w.pixels[i] = rand.nextInt() & 0xffffff;
+            w.plainBits.appendBits(w.pixels[i], BITS_PER_PIXEL);
+        }
+
+        w.codeBits.clear();
+        encoder.encode(w.image, w.codeBits);
+        BitBuffer sent = w.codeBits;
+        if (puncturing != null) {
+            w.puncturedBits.clear();
+            puncturing.puncture(w.codeBits, 0, w.codeBits.length(), w.puncturedBits);
+            sent = w.puncturedBits;
+        }
+        NoiseGenerator channel = new NoiseGenerator(rand.nextLong());
+        channel.setGeometricSkip(true);
+        channel.setErrorRate(errorRate);
+        channel.noisifyChunk(sent);
+        channelErrors[trial] = channel.errorCount();
+        if (puncturing != null) {
+            w.codeBits.clear();
+            puncturing.depuncture(sent, 0, sent.length(), w.codeBits);
+        }
+
+        for (int d = 0; d < w.decoders.length; ++d) {
+            long start = System.nanoTime();
+            w.decoders[d].decodeIS95(w.codeBits, w.pixels.length, w.decodedBits);
+            decodeNanos[d][trial] = System.nanoTime() - start;
+            errors[d][trial] = w.plainBits.countDifferences(w.decodedBits);
+        }
+    }
+
+    /*
+     * SplittableRandom mixes its seed, so neighbouring trials get unrelated streams.
+     */
+    private long trialSeed(int errorRate, int trial)
+    {
+        return new SplittableRandom(seed ^ (long) errorRate << 32 ^ trial).nextLong();
+    }
+
+    /*
+     * Frame and buffers of one thread, reused by all trials it runs.
+     */
+    private final class Worker
+    {
+        final BitBuffer     codeBits      = new BitBuffer();
+        final IDecoder[]    decoders;
+        final BitBuffer     decodedBits   = new BitBuffer();
+        final BufferedImage image         = new BufferedImage(frameWidth, frameHeight, BufferedImage.TYPE_INT_RGB);
+        final int[]         pixels        = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        final BitBuffer     plainBits     = new BitBuffer();
+        final BitBuffer     puncturedBits = new BitBuffer();  // code-text sent through the channel when punctured
+
+        Worker(int[] depths)
+        {
+            decoders = new IDecoder[depths.length];
+            for (int d = 0; d < depths.length; ++d) {
+                decoders[d] = decoderFactory.apply(encoder);
+                decoders[d].setDecodingDepth(depths[d]);
+                decoders[d].setPuncturing(puncturing);
+            }
+        }
+    }
+
+    /**
+     * Decoded BER of one error rate and depth, over all trials.
+     */
+    public static final class Point
+    {
+        private final double berHigh;
+        private final double berLow;
+        private final long   bitErrors;
+        private final long   bits;
+        private final long   channelBits;
+        private final long   channelErrors;
+        private final long   decodeNanos;
+        private final int    depth;
+        private final int    errorRate;
+        private final int    framesWithErrors;
+        private final int    trials;
+
+        Point(int errorRate, int depth, int trials, long frameBits, long[] trialErrors,
+              long channelBits, long channelErrors, long decodeNanos)
+        {
+            this.errorRate = errorRate;
+            this.depth = depth;
+            this.trials = trials;
+            this.bits = frameBits * trials;
+            this.channelBits = channelBits;
+            this.channelErrors = channelErrors;
+            this.decodeNanos = decodeNanos;
+
+            long sum = 0;
+            int frames = 0;
+            for (long e : trialErrors) {
+                sum += e;
+                if (e > 0) ++frames;
+            }
+            bitErrors = sum;
+            framesWithErrors = frames;
+
+            double ber = (double) sum / bits;
+            double half;
+            double center = ber;
+            if (trials > 1 && sum > 0) {
+                double variance = 0;
+                for (long e : trialErrors) {
+                    double d = (double) e / frameBits - ber;
+                    variance += d * d;
+                }
+                variance /= trials - 1;
+                half = Z_95 * Math.sqrt(variance / trials);
+            } else {
+                // Wilson score interval
+                double z2 = Z_95 * Z_95 / bits;
+                center = (ber + z2 / 2) / (1 + z2);
+                half = Z_95 * Math.sqrt(ber * (1 - ber) / bits + z2 / (4 * bits)) / (1 + z2);
+            }
+            berLow = Math.max(0, center - half);
+            berHigh = Math.min(1, center + half);
+        }
+
+        public int errorRate() { return errorRate; }
+
+        public int depth() { return depth; }
+
+        public int trials() { return trials; }
+
+        /**
+         * @return Plain-text bits decoded over all trials
+         */
+        public long bits() { return bits; }
+
+        public long bitErrors() { return bitErrors; }
+
+        public double ber() { return (double) bitErrors / bits; }
+
+        /**
+         * @return Lower end of the 95 % confidence interval of ber()
+         */
+        public double berLow() { return berLow; }
+
+        /**
+         * @return Upper end of the 95 % confidence interval of ber()
+         */
+        public double berHigh() { return berHigh; }
+
+        /**
+         * @return Fraction of trials with at least one decoded bit error
+         */
+        public double frameErrorRate() { return (double) framesWithErrors / trials; }
+
+        /**
+         * @return Bit error rate the channel actually produced, before decoding
+         */
+        public double channelBer() { return (double) channelErrors / channelBits; }
+
+        /**
+         * @return Decoded bits per second of one thread, i.e. the cost of this depth
+         */
+        public double decodeBitsPerSecond() { return decodeNanos == 0 ? 0 : bits * 1e9 / decodeNanos; }
+    }
+}
@@ -0,0 +1,302 @@
+package com.company;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Growable vector of bits packed 64 to a long.
+ * Bit 0 is the most significant bit of the first word, so the packed form reads left to right
+ * in the same order as the '0'/'1' code-text it replaces.
+ */
+public class BitBuffer implements IBitSource
+{
+    private static final int  WORD_BITS   = 64;
+    private static final int  ASCII_CHUNK = 8192;  // bytes per read/write when streaming ASCII form
+
+    private long[] words;
+    private int    length;
+
+    public BitBuffer()
+    {
+        this(WORD_BITS);
+    }
+
+    /**
+     * @param capacity Expected number of bits. The buffer grows if more are appended.
+     */
+    public BitBuffer(int capacity)
+    {
+        words = new long[Math.max(1, wordsFor(capacity))];
+    }
+
+    /**
+     * Build a packed buffer from '0'/'1' characters.
+     *
+     * @param ascii Source containing only '0's and '1's
+     * @param from Index of the first character
+     * @param to Index one past the last character
+     */
+    public static BitBuffer fromAscii(byte[] ascii, int from, int to)
+    {
+        BitBuffer bits = new BitBuffer(to - from);
+        bits.appendAscii(ascii, from, to);
+        return bits;
+    }
+
+    public static BitBuffer fromAscii(byte[] ascii)
+    {
+        return fromAscii(ascii, 0, ascii.length);
+    }
+
+    /**
+     * Read '0'/'1' code-text from the stream until it ends.
+     * Any other characters (EOL) are skipped, so no trimming of the source is needed.
+     */
+    public static BitBuffer readAscii(InputStream in) throws IOException
+    {
+        BitBuffer bits = new BitBuffer(ASCII_CHUNK * 8);
+        byte[] chunk = new byte[ASCII_CHUNK];
+        int n;
+        while ((n = in.read(chunk)) > 0) {
+            bits.appendAscii(chunk, 0, n);
+        }
+        return bits;
+    }
+
+    @Override
+    public int length() { return length; }
+
+    /**
+     * Backing words. Only the first (length() + 63) / 64 are meaningful
+     * and bits past length() in the last of them are always 0.
+     */
+    public long[] words() { return words; }
+
+    @Override
+    public int get(int index)
+    {
+        return (int) (words[index >>> 6] >>> ~index) & 0x01;  // shift is taken mod 64: ~index == 63 - index % 64
+    }
+
+    public void set(int index, int bit)
+    {
+        long mask = Long.MIN_VALUE >>> index;
+        if (bit == 0)
+            words[index >>> 6] &= ~mask;
+        else
+            words[index >>> 6] |= mask;
+    }
+
+    /**
+     * Overwrite count consecutive bits with the count least significant bits of value, most significant of them first.
+     * The bits must lie within length(), see setLength().
+     *
+     * @param index Index of the first bit
+     * @param count Number of bits, 1 to 64
+     */
+    public void setBits(int index, long value, int count)
+    {
+        long bits   = value << WORD_BITS - count;  // align first bit to the top, also drops anything above count
+        long mask   = -1L << WORD_BITS - count;
+        int  word   = index >>> 6;
+        int  offset = index & 0x3f;
+        words[word] = words[word] & ~(mask >>> offset) | bits >>> offset;
+        if (offset + count > WORD_BITS)
+            words[word + 1] = words[word + 1] & ~(mask << WORD_BITS - offset) | bits << WORD_BITS - offset;
+    }
+
+    public void flip(int index)
+    {
+        words[index >>> 6] ^= Long.MIN_VALUE >>> index;
+    }
+
+    /**
+     * Read up to 64 consecutive bits. The bit at index ends up most significant.
+     *
+     * @param index Index of the first bit
+     * @param count Number of bits, 1 to 64
+     */
+    @Override
+    public long getBits(int index, int count)
+    {
+        int  word   = index >>> 6;
+        int  offset = index & 0x3f;
+        long bits   = words[word] << offset;
+        if (offset + count > WORD_BITS)
+            bits |= words[word + 1] >>> WORD_BITS - offset;
+        return bits >>> WORD_BITS - count;
+    }
+
+    public void append(int bit)
+    {
+        ensureCapacity(length + 1);
+        if (bit != 0)
+            words[length >>> 6] |= Long.MIN_VALUE >>> length;
+        ++length;
+    }
+
+    /**
+     * Append the count least significant bits of value, most significant of them first.
+     *
+     * @param value Bits to append
+     * @param count Number of bits, 1 to 64
+     */
+    public void appendBits(long value, int count)
+    {
+        ensureCapacity(length + count);
+        value <<= WORD_BITS - count;  // align first bit to the top, also drops anything above count
+        int word   = length >>> 6;
+        int offset = length & 0x3f;
+        words[word] |= value >>> offset;
+        if (offset + count > WORD_BITS)
+            words[word + 1] = value << WORD_BITS - offset;
+        length += count;
+    }
+
+    /**
+     * Append count bits of another buffer starting at from.
+     */
+    public void append(IBitSource src, int from, int count)
+    {
+        ensureCapacity(length + count);
+        while (count >= WORD_BITS) {
+            appendBits(src.getBits(from, WORD_BITS), WORD_BITS);
+            from += WORD_BITS;
+            count -= WORD_BITS;
+        }
+        if (count > 0)
+            appendBits(src.getBits(from, count), count);
+    }
+
+    public void append(IBitSource src)
+    {
+        append(src, 0, src.length());
+    }
+
+    /**
+     * Append '0'/'1' characters. Other characters are skipped.
+     * Runs of 8 '0'/'1' characters are packed at once by SymbolUnpacker.
+     */
+    public void appendAscii(byte[] ascii, int from, int to)
+    {
+        ensureCapacity(length + to - from);
+        ByteBuffer chars = ByteBuffer.wrap(ascii);
+        int i = from;
+        while (i < to) {
+            int bits = i + Long.BYTES <= to ? SymbolUnpacker.packAscii8(chars.getLong(i)) : -1;
+            if (bits >= 0) {
+                appendBits(bits, Byte.SIZE);
+                i += Long.BYTES;
+            } else {
+                if (ascii[i] == '0')
+                    ++length;
+                else if (ascii[i] == '1')
+                    words[length >>> 6] |= Long.MIN_VALUE >>> length++;
+                ++i;
+            }
+        }
+    }
+
+    /**
+     * Shorten the buffer. Bits past the new length are cleared.
+     */
+    public void truncate(int newLength)
+    {
+        if (newLength >= length) return;
+        int lastWord = newLength >>> 6;
+        if ((newLength & 0x3f) == 0)
+            words[lastWord] = 0;
+        else
+            words[lastWord] &= -1L << WORD_BITS - (newLength & 0x3f);
+        Arrays.fill(words, lastWord + 1, wordsFor(length), 0);
+        length = newLength;
+    }
+
+    /**
+     * Grow the buffer with 0 bits, or shorten it like truncate() does.
+     * Lets a writer reserve room and then fill it out of order with set().
+     */
+    public void setLength(int newLength)
+    {
+        if (newLength < length) {
+            truncate(newLength);
+        } else {
+            ensureCapacity(newLength);
+            length = newLength;
+        }
+    }
+
+    public void clear()
+    {
+        truncate(0);
+    }
+
+    /**
+     * Compares a word at a time, so counting the bit errors of a decoded frame costs a few XORs per 64 bits.
+     *
+     * @return Number of positions where the two buffers differ, bits present in one buffer only count as differences
+     */
+    public long countDifferences(BitBuffer other)
+    {
+        int  common = Math.min(length, other.length);
+        int  whole  = common >>> 6;
+        long count  = Math.abs(length - other.length);
+        for (int i = 0; i < whole; ++i) {
+            count += Long.bitCount(words[i] ^ other.words[i]);
+        }
+        if ((common & 0x3f) != 0)
+            count += Long.bitCount((words[whole] ^ other.words[whole]) & -1L << WORD_BITS - (common & 0x3f));
+        return count;
+    }
+
+    public void ensureCapacity(int bits)
+    {
+        if (wordsFor(bits) > words.length)
+            words = Arrays.copyOf(words, Math.max(wordsFor(bits), words.length * 2));
+    }
+
+    /**
+     * Write the bits as '0'/'1' characters in fixed size pieces, without building the whole text in memory.
+     */
+    public void writeAscii(OutputStream out) throws IOException
+    {
+        byte[] chunk = new byte[ASCII_CHUNK];
+        for (int i = 0; i < length; i += ASCII_CHUNK) {
+            int n = Math.min(ASCII_CHUNK, length - i);
+            for (int j = 0; j < n; ++j) {
+                chunk[j] = (byte) ('0' + get(i + j));
+            }
+            out.write(chunk, 0, n);
+        }
+    }
+
+    /**
+     * @return One '0' or '1' byte per bit. Meant for the legacy ASCII interfaces only.
+     */
+    public byte[] toAscii()
+    {
+        byte[] ascii = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            ascii[i] = (byte) ('0' + get(i));
+        }
+        return ascii;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; ++i) {
+            sb.append(get(i));
+        }
+        return sb.toString();
+    }
+
+    static int wordsFor(int bits)
+    {
+        return (bits + WORD_BITS - 1) >>> 6;
+    }
+}
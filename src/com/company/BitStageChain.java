@@ -0,0 +1,52 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Stages run one after the other on one thread, each fed the output of the one before.
+ */
+public class BitStageChain implements IBitStage
+{
+    private final BitBuffer[] buffers;  // [stage] output of every stage but the last
+    private final IBitStage[] stages;
+
+    public BitStageChain(IBitStage... s) throws InvalidParameterException
+    {
+        if (s.length == 0) throw new InvalidParameterException("Chain needs at least one stage!");
+        stages = s.clone();
+        buffers = new BitBuffer[s.length - 1];
+        for (int i = 0; i < buffers.length; ++i) {
+            buffers[i] = new BitBuffer();
+        }
+    }
+
+    @Override
+    public void process(IBitSource in, int from, int count, BitBuffer out)
+    {
+        IBitSource src = in;
+        for (int i = 0; i < buffers.length; ++i) {
+            buffers[i].clear();
+            stages[i].process(src, from, count, buffers[i]);
+            src = buffers[i];
+            from = 0;
+            count = buffers[i].length();
+        }
+        stages[buffers.length].process(src, from, count, out);
+    }
+
+    /**
+     * End the stages in order: what a stage gives out when it ends is passed through the ones after it before they end.
+     */
+    @Override
+    public void end(BitBuffer out)
+    {
+        BitBuffer rest = null;
+        for (int i = 0; i < stages.length; ++i) {
+            BitBuffer dst = i < buffers.length ? buffers[i] : out;
+            if (i < buffers.length) dst.clear();
+            if (rest != null) stages[i].process(rest, dst);
+            stages[i].end(dst);
+            rest = dst;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.company;
+
+/**
+ * Stage that works on whole blocks of a fixed number of bits.
+ * Whole blocks are read straight from the input, bits of a block split between pieces are gathered in a carry.
+ */
+abstract class BlockBitStage implements IBitStage
+{
+    private final int       blockBits;
+    private final BitBuffer carry;  // start of a block split between pieces
+
+    BlockBitStage(int b)
+    {
+        blockBits = b;
+        carry = new BitBuffer(b);
+    }
+
+    @Override
+    public void process(IBitSource in, int from, int count, BitBuffer out)
+    {
+        int end = from + count;
+
+        // complete the block left over from the previous piece:
+        if (carry.length() > 0) {
+            int n = Math.min(blockBits - carry.length(), count);
+            carry.append(in, from, n);
+            from += n;
+            if (carry.length() < blockBits) return;
+            processBlocks(carry, 0, 1, out);
+            carry.clear();
+        }
+
+        int blocks = (end - from) / blockBits;
+        if (blocks > 0) processBlocks(in, from, blocks, out);
+        from += blocks * blockBits;
+        carry.append(in, from, end - from);
+    }
+
+    @Override
+    public void end(BitBuffer out)
+    {
+        endBlocks(carry, out);
+        carry.clear();
+    }
+
+    /**
+     * Append the output of blocks whole blocks of in, the first one starting at from.
+     */
+    protected abstract void processBlocks(IBitSource in, int from, int blocks, BitBuffer out);
+
+    /**
+     * Append the output of the end of the stream and reset for a new one.
+     *
+     * @param rest Last bits of the stream, fewer than a block, maybe none
+     */
+    protected abstract void endBlocks(IBitSource rest, BitBuffer out);
+}
@@ -0,0 +1,95 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Row/column block interleaver: every block of rows × cols bits is written row after row and sent column after column.
+ * Consecutive bits of the channel are then cols bits apart in the code-text, so a burst of up to rows bits
+ * becomes single errors cols bits apart.
+ *
+ * Blocks are transposed tile by tile (BitTranspose), the deinterleaver transposes back the cols × rows matrix.
+ * The end of a stream shorter than a block is sent as it is.
+ */
+public class BlockInterleaver implements IInterleaver
+{
+    private static final int MAX_DIMENSION = 0x0fffffff;  // fits pack()
+
+    private final int cols;
+    private final int rows;
+
+    /**
+     * @param rows Rows of a block, the longest burst spread out
+     * @param cols Bits per row, the distance between the errors of a burst
+     */
+    public BlockInterleaver(int rows, int cols) throws InvalidParameterException
+    {
+        if (rows < 1 || cols < 1 || rows > MAX_DIMENSION || cols > MAX_DIMENSION || (long) rows * cols > Integer.MAX_VALUE / 2)
+            throw new InvalidParameterException("Interleaver block of " + rows + " × " + cols + " bits is out of range!");
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * Sized to the decoder's traceback: one row per decoding window, so each error of a burst of up to burstBits
+     * falls into a window of its own.
+     *
+     * @param windowBits Code-text bits of one decoding window, the decoding depth times the bits per symbol
+     * @param burstBits Longest burst to spread out
+     */
+    public static BlockInterleaver forDepth(int windowBits, int burstBits) throws InvalidParameterException
+    {
+        return new BlockInterleaver(burstBits, windowBits);
+    }
+
+    public int blockBits() { return rows * cols; }
+
+    public int cols() { return cols; }
+
+    public int rows() { return rows; }
+
+    @Override
+    public IBitStage interleaver() { return new Stage(rows, cols); }
+
+    @Override
+    public IBitStage deinterleaver() { return new Stage(cols, rows); }
+
+    @Override
+    public long pack() { return (long) BLOCK << 56 | (long) rows << 28 | cols; }
+
+    @Override
+    public String toString() { return "block " + rows + "x" + cols; }
+
+    /*
+     * Transposes every block of r × c bits.
+     */
+    private static final class Stage extends BlockBitStage
+    {
+        private final int    c;
+        private final int    r;
+        private final long[] tile = new long[BitTranspose.TILE];
+
+        Stage(int r, int c)
+        {
+            super(r * c);
+            this.r = r;
+            this.c = c;
+        }
+
+        @Override
+        protected void processBlocks(IBitSource in, int from, int blocks, BitBuffer out)
+        {
+            int blockBits = r * c;
+            int to = out.length();
+            out.setLength(to + blocks * blockBits);
+            for (int b = 0; b < blocks; ++b) {
+                BitTranspose.transpose(in, from + b * blockBits, r, c, out, to + b * blockBits, tile);
+            }
+        }
+
+        @Override
+        protected void endBlocks(IBitSource rest, BitBuffer out)
+        {
+            out.append(rest, 0, rest.length());
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.company;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Base of channels that switch between a good state and a bad (burst) state.
+ * Each state has its own bit error probability, and subclasses decide how long the channel stays in a state.
+ *
+ * Only the flipped bits are touched: the gap to the next error is drawn from a geometric distribution,
+ * and when the gap runs past the end of the current state, drawing goes on in the next state.
+ * The cost is one draw per error plus two per burst, whatever the length of the signal.
+ * The channel state and whatever was drawn past the end of a chunk carry over to the next chunk,
+ * so with the same seed the same bits are flipped however the signal is cut into chunks.
+ */
+public abstract class BurstNoiseGenerator implements INoiseGenerator
+{
+    protected static final int      BOUND = 10000;  // error rates are in parts per BOUND
+
+    private         long            ahead;                       // bits at the start of the next chunk already drawn error free
+    private         long            badBits;
+    private         long            bitCount;
+    private         long            burstCount;
+    private         boolean         errorAhead;                  // the bit after those is an error
+    private         long            errorCount;
+    private         boolean         inBurst;
+    private final   double[]        logNoError = new double[2];  // [in burst ? 1 : 0] ln(1 - bit error probability)
+    private         long            stateLeft;                   // bits left in the current state, not counting ahead
+    protected final RandomGenerator rand;
+
+    protected BurstNoiseGenerator()
+    {
+        rand = new SplittableRandom();
+    }
+
+    protected BurstNoiseGenerator(long seed)
+    {
+        rand = new SplittableRandom(seed);
+    }
+
+    /**
+     * @return Bits spent in the bad state, i.e. inside bursts, since the statistics were last reset.
+     */
+    public long badBitCount() { return badBits; }
+
+    /**
+     * @return Bursts entered since the statistics were last reset.
+     */
+    public long burstCount() { return burstCount; }
+
+    @Override
+    public long errorCount() { return errorCount; }
+
+    @Override
+    public long bitCount() { return bitCount; }
+
+    @Override
+    public void resetStatistics()
+    {
+        badBits = 0;
+        bitCount = 0;
+        burstCount = 0;
+        errorCount = 0;
+    }
+
+    /**
+     * Put the channel back into the good state at the start of a new stream.
+     */
+    public void resetChannel()
+    {
+        ahead = 0;
+        errorAhead = false;
+        inBurst = true;  // the first state drawn is the good one
+        stateLeft = 0;
+    }
+
+    @Override
+    public String noisify(String s)
+    {
+        return noisify(BitBuffer.fromAscii(s.getBytes(StandardCharsets.US_ASCII))).toString();
+    }
+
+    @Override
+    public BitBuffer noisify(BitBuffer bits)
+    {
+        resetStatistics();
+        noisifyChunk(bits);
+
+        String name = getClass().getSimpleName();
+        System.out.println("[ " + name + " ] " + bits.length() + " bits in channel. Expected error rate: " +
+                           (float) averageErrorProbability() * 100 + " %\n" +
+                           "[ " + name + " ] Generated " + errorCount + " bit errors in " + burstCount + " bursts" +
+                           " of mean length " + (burstCount == 0 ? 0 : (float) badBits / burstCount) + " bits. " +
+                           "Actual error rate: " + (float) errorCount / bits.length() * 100 + "%");
+
+        return bits;
+    }
+
+    @Override
+    public BitBuffer noisifyChunk(BitBuffer bits)
+    {
+        int length = bits.length();
+        bitCount += length;
+
+        long i = ahead;
+        boolean error = errorAhead;
+        if (inBurst) badBits += Math.min(ahead + (error ? 1 : 0), length);
+        while (i < length) {
+            if (error) {
+                bits.flip((int) i++);
+                ++errorCount;
+            }
+
+            if (stateLeft == 0) {
+                inBurst = !inBurst;
+                stateLeft = drawStateLength(inBurst);
+                if (inBurst) ++burstCount;
+            }
+
+            // error free bits, then possibly an error, within the current state:
+            long g = drawGeometric(logNoError[inBurst ? 1 : 0]);
+            error = g < stateLeft;
+            long run = error ? g : stateLeft;
+            stateLeft -= run + (error ? 1 : 0);
+            if (inBurst) badBits += Math.min(run + (error ? 1 : 0), length - i);
+            i += Math.min(run, Long.MAX_VALUE - i);  // a state may last forever
+        }
+
+        // what was drawn past the end belongs to the next chunk:
+        ahead = i - length;
+        errorAhead = error;
+        return bits;
+    }
+
+    /**
+     * Displays histogram of the uniform RNG driving the channel.
+     * Allows user to visually ensure distribution is uniform.
+     */
+    @Override
+    public void histogram()
+    {
+        final int BINS = 50;
+        final int DRAWS = 1_000_000;
+
+        int[] hist = new int[BINS];
+        double sum = 0;
+        for (int i = 0; i < DRAWS; ++i) {
+            double u = rand.nextDouble();
+            ++hist[(int) (u * BINS)];
+            sum += u;
+        }
+
+        char[] c = new char[DRAWS / BINS];
+        Arrays.fill(c, '█');
+        String barString = new String(c);
+
+        System.out.println("Drawing " + DRAWS + " numbers from range 0-1 (incl.-excl.)");
+        System.out.println("Histogram:");
+        for (int i = 0; i < BINS; ++i) {
+            System.out.println(String.format("%.2f: %6d  ", (double) i / BINS, hist[i]) + barString.substring(0, hist[i] / 500));
+        }
+        System.out.println("Average: " + sum / DRAWS);
+    }
+
+    /**
+     * @return Long run fraction of flipped bits
+     */
+    public abstract double averageErrorProbability();
+
+    /**
+     * @param bad Whether the state being entered is the bad state
+     * @return Number of bits, at least 1, the channel stays in the state being entered
+     */
+    protected abstract long drawStateLength(boolean bad);
+
+    /**
+     * @param good Bit error probability in the good state
+     * @param bad Bit error probability in the bad state
+     */
+    protected void setErrorProbabilities(double good, double bad)
+    {
+        logNoError[0] = Math.log1p(-good);
+        logNoError[1] = Math.log1p(-bad);
+        resetChannel();
+    }
+
+    /**
+     * @param logStay ln(1 - probability of leaving the state after every bit)
+     * @return Length of a stay in a state that is left after every bit with the same probability
+     */
+    protected long drawMemorylessStateLength(double logStay)
+    {
+        long g = drawGeometric(logStay);
+        return g == Long.MAX_VALUE ? g : g + 1;
+    }
+
+    /**
+     * @return floor(ln U / logNoSuccess) with U uniform in (0, 1]: the number of failures before
+     * the first success of Bernoulli trials. Long.MAX_VALUE when success is impossible.
+     */
+    protected long drawGeometric(double logNoSuccess)
+    {
+        if (logNoSuccess == 0) return Long.MAX_VALUE;
+        double gap = Math.log(1.0 - rand.nextDouble()) / logNoSuccess;
+        return gap >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) gap;
+    }
+}
@@ -0,0 +1,360 @@
+package com.company;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+
+/**
+ * Binary codeword file: a fixed header followed by the packed bits.
+ *
+ * Header, big-endian, HEADER_BYTES long:
+ *   0  int   magic "VCWF"
+ *   4  short version
+ *   6  short header length in bytes
+ *   8  int   encoder delay
+ *  12  int   encoder output length (bits per symbol)
+ *  16  int   image width
+ *  20  int   image height
+ *  24  long  pixel count
+ *  32  long  bit count
+ *  40  16 ASCII bytes of encoder name, 0 padded
+ *  56  long  puncture pattern (PuncturePattern.pack()), 0 if the code-text is not punctured
+ *  64  long  interleaver (IInterleaver.pack()), 0 if the code-text is not interleaved
+ *  72  8 unsigned shorts of the encoder's generators (IEncoder.generators()), 0 padded, all 0 for plain-text
+ * The encoder name is only for people: every code is a ConvolutionalEncoder, the generators tell which one it is.
+ * The payload are the words of a BitBuffer as big-endian longs, so bit 0 is the most significant bit of the first byte.
+ *
+ * Files are written through a FileChannel and read by mapping them: bits() reads the mapped payload in place,
+ * so the code-text is never copied onto the heap.
+ */
+public class CodewordFile
+{
+    private static final int   MAGIC              = 0x56435746;  // "VCWF"
+    private static final short VERSION            = 1;
+    static final         int   HEADER_BYTES       = 88;
+    private static final int   ENCODER_NAME_BYTES = 16;
+    private static final int   GENERATORS_OFFSET  = 72;
+    private static final int   MAX_GENERATORS     = 8;
+    private static final int   WRITE_CHUNK        = 1 << 16;      // payload bytes per write
+
+    private final MappedBits bits;
+    private final int        delay;
+    private final String     encoderName;
+    private final int[]      generators;    // null for plain-text
+    private final int        height;
+    private final long       interleaving;
+    private final int        outputLength;
+    private final long       puncturing;
+    private final int        width;
+
+    private CodewordFile(String name, int d, int n, int[] g, long p, long i, int w, int h, MappedBits b)
+    {
+        encoderName = name;
+        delay = d;
+        outputLength = n;
+        generators = g;
+        puncturing = p;
+        interleaving = i;
+        width = w;
+        height = h;
+        bits = b;
+    }
+
+    /**
+     * Write code-text produced by encoder from a width × height image.
+     */
+    public static void write(Path path, IEncoder encoder, int width, int height, BitBuffer bits) throws IOException
+    {
+        write(path, encoder, null, null, width, height, bits);
+    }
+
+    /**
+     * Write code-text produced by encoder from a width × height image, punctured with pattern and then interleaved.
+     *
+     * @param pattern Pattern bits was punctured with, null if it was not
+     * @param interleaver Interleaver bits went through, null if none
+     */
+    public static void write(Path path, IEncoder encoder, PuncturePattern pattern, IInterleaver interleaver, int width,
+                             int height, BitBuffer bits)
+            throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header(encoder, pattern, interleaver, width, height, bits.length()));
+            writeWords(channel, bits.words(), BitBuffer.wordsFor(bits.length()), ByteBuffer.allocateDirect(WRITE_CHUNK));
+        }
+    }
+
+    /**
+     * @param encoderName Name of the encoder, only the first 16 characters are kept
+     * @param delay Delay of the encoder, 0 for plain-text
+     * @param outputLength Bits per symbol, 1 for plain-text
+     */
+    public static void write(Path path, String encoderName, int delay, int outputLength, int width, int height, BitBuffer bits)
+            throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header(encoderName, delay, outputLength, width, height, bits.length()));
+            writeWords(channel, bits.words(), BitBuffer.wordsFor(bits.length()), ByteBuffer.allocateDirect(WRITE_CHUNK));
+        }
+    }
+
+    /**
+     * @return Header of a codeword file, ready to be written
+     */
+    static ByteBuffer header(String encoderName, int delay, int outputLength, int width, int height, long bitCount)
+    {
+        return header(encoderName, delay, outputLength, null, null, null, width, height, bitCount);
+    }
+
+    /**
+     * Header of code-text encoder produced.
+     *
+     * @param pattern Pattern the code-text was punctured with, null if it was not
+     * @param interleaver Interleaver the code-text went through, null if none
+     */
+    static ByteBuffer header(IEncoder encoder, PuncturePattern pattern, IInterleaver interleaver, int width, int height,
+                             long bitCount)
+            throws InvalidParameterException
+    {
+        if (encoder.outputLength() > MAX_GENERATORS)
+            throw new InvalidParameterException("[ CodewordFile ] Only codes of up to " + MAX_GENERATORS + " generators fit the header");
+        return header(encoder.getClass().getSimpleName(), encoder.delay(), encoder.outputLength(), encoder.generators(), pattern,
+                      interleaver, width, height, bitCount);
+    }
+
+    private static ByteBuffer header(String encoderName, int delay, int outputLength, int[] generators, PuncturePattern pattern,
+                                     IInterleaver interleaver, int width, int height, long bitCount)
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC)
+              .putShort(VERSION)
+              .putShort((short) HEADER_BYTES)
+              .putInt(delay)
+              .putInt(outputLength)
+              .putInt(width)
+              .putInt(height)
+              .putLong((long) width * height)
+              .putLong(bitCount);
+        byte[] name = encoderName.getBytes(StandardCharsets.US_ASCII);
+        header.put(name, 0, Math.min(name.length, ENCODER_NAME_BYTES));
+        header.putLong(56, pattern == null ? 0 : pattern.pack());
+        header.putLong(64, interleaver == null ? 0 : interleaver.pack());
+        if (generators != null) {
+            for (int g = 0; g < generators.length; ++g) {
+                header.putShort(GENERATORS_OFFSET + g * Short.BYTES, (short) generators[g]);  // K is at most 16
+            }
+        }
+        return header.clear();
+    }
+
+    /**
+     * Write the first count words big-endian at the channel's position, through chunk, a buffer of a multiple of 8 bytes.
+     */
+    static void writeWords(FileChannel channel, long[] words, int count, ByteBuffer chunk) throws IOException
+    {
+        LongBuffer chunkWords = chunk.clear().asLongBuffer();
+        int perChunk = chunkWords.capacity();
+        for (int i = 0; i < count; i += perChunk) {
+            int n = Math.min(perChunk, count - i);
+            chunkWords.clear();
+            chunkWords.put(words, i, n);
+            chunk.clear().limit(n * Long.BYTES);
+            writeFully(channel, chunk);
+        }
+    }
+
+    /**
+     * Map a codeword file. The mapping stays valid after this returns, the channel is closed.
+     *
+     * @throws IOException if the file is not a codeword file or is shorter than its header says
+     */
+    public static CodewordFile map(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES)
+                throw new IOException("[ CodewordFile ] " + path + " is too short for a codeword file");
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) throw new IOException("[ CodewordFile ] " + path + " ended early");
+            }
+            header.flip();
+            if (header.getInt() != MAGIC)
+                throw new IOException("[ CodewordFile ] " + path + " is not a codeword file");
+            short version = header.getShort();
+            if (version != VERSION)
+                throw new IOException("[ CodewordFile ] " + path + " has version " + version + ", only " + VERSION + " is known");
+            int headerBytes = header.getShort() & 0xffff;
+            int delay = header.getInt();
+            int outputLength = header.getInt();
+            int width = header.getInt();
+            int height = header.getInt();
+            long pixelCount = header.getLong();
+            long bitCount = header.getLong();
+            byte[] name = new byte[ENCODER_NAME_BYTES];
+            header.get(name);
+            long puncturing = header.getLong();
+            long interleaving = header.getLong();
+
+            if (headerBytes < HEADER_BYTES || pixelCount != (long) width * height || bitCount < 0 || bitCount > Integer.MAX_VALUE ||
+                outputLength < 1 || outputLength > MAX_GENERATORS)
+                throw new IOException("[ CodewordFile ] " + path + " has a corrupt header");
+            int[] generators = readGenerators(header, outputLength);
+            if (delay > 0 && generators == null)
+                throw new IOException("[ CodewordFile ] " + path + " holds code-text but not the generators of its code");
+            long payloadBytes = (long) BitBuffer.wordsFor((int) bitCount) * Long.BYTES;
+            if (channel.size() < headerBytes + payloadBytes)
+                throw new IOException("[ CodewordFile ] " + path + " holds fewer than the " + bitCount + " bits its header promises");
+
+            MappedByteBuffer payload = channel.map(FileChannel.MapMode.READ_ONLY, headerBytes, payloadBytes);
+            int nameLength = 0;
+            while (nameLength < ENCODER_NAME_BYTES && name[nameLength] != 0) ++nameLength;
+            return new CodewordFile(new String(name, 0, nameLength, StandardCharsets.US_ASCII), delay, outputLength, generators,
+                                    puncturing, interleaving, width, height, new MappedBits(payload.asLongBuffer(), (int) bitCount));
+        }
+    }
+
+    /*
+     * Generators in the header, null if they are all 0 (plain-text).
+     */
+    private static int[] readGenerators(ByteBuffer header, int outputLength)
+    {
+        int[] generators = new int[outputLength];
+        boolean any = false;
+        for (int g = 0; g < outputLength; ++g) {
+            generators[g] = header.getShort(GENERATORS_OFFSET + g * Short.BYTES) & 0xffff;
+            any |= generators[g] != 0;
+        }
+        return any ? generators : null;
+    }
+
+    /**
+     * The delay, the bits per symbol and the generators must all match:
+     * codes of the same K and rate but other generators have another trellis.
+     *
+     * @throws InvalidParameterException if the file was not written for this encoder's code
+     */
+    public void checkEncoder(IEncoder encoder)
+    {
+        if (encoder.delay() != delay || encoder.outputLength() != outputLength || !Arrays.equals(encoder.generators(), generators))
+            throw new InvalidParameterException("[ CodewordFile ] Code-text of " + codeName(delay, generators) + " does not match " +
+                                                codeName(encoder.delay(), encoder.generators()));
+    }
+
+    /*
+     * Code in the notation of ConvolutionalEncoder.forName(), "K:g1,g2,..." with octal generators.
+     */
+    private static String codeName(int delay, int[] generators)
+    {
+        if (generators == null) return "plain-text";
+        StringBuilder sb = new StringBuilder().append(delay + 1).append(':');
+        for (int g = 0; g < generators.length; ++g) {
+            if (g > 0) sb.append(',');
+            sb.append(Integer.toOctalString(generators[g]));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The mapped payload, read in place
+     */
+    public IBitSource bits() { return bits; }
+
+    /**
+     * @param from First bit, a multiple of 64
+     * @param count Number of bits
+     * @return count bits of the mapped payload starting at from, read in place
+     */
+    public IBitSource bits(int from, int count)
+    {
+        if ((from & 0x3f) != 0 || from < 0 || count < 0 || from + count > bits.length)
+            throw new InvalidParameterException("[ CodewordFile ] Bits " + from + " to " + (from + count) + " are not a word aligned part of " + bits.length);
+        return new MappedBits(bits.words.slice(from >>> 6, BitBuffer.wordsFor(count)), count);
+    }
+
+    public int delay() { return delay; }
+
+    public String encoderName() { return encoderName; }
+
+    /**
+     * @return Copy of the generators of the code, null for plain-text
+     */
+    public int[] generators() { return generators == null ? null : generators.clone(); }
+
+    public int height() { return height; }
+
+    /**
+     * @return Interleaver the code-text went through, null if none
+     * @throws InvalidParameterException if the header holds no valid interleaver
+     */
+    public IInterleaver interleaving() throws InvalidParameterException
+    {
+        return IInterleaver.unpack(interleaving);
+    }
+
+    public int outputLength() { return outputLength; }
+
+    public int pixelCount() { return width * height; }
+
+    /**
+     * @return Pattern the code-text was punctured with, null if it was not
+     * @throws InvalidParameterException if the header holds no valid pattern for its output length
+     */
+    public PuncturePattern puncturing() throws InvalidParameterException
+    {
+        return puncturing == 0 ? null : PuncturePattern.unpack(outputLength, puncturing);
+    }
+
+    public int width() { return width; }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /*
+     * Bits in the layout of BitBuffer, read straight from the mapped words.
+     */
+    private static final class MappedBits implements IBitSource
+    {
+        private final LongBuffer words;
+        private final int        length;
+
+        MappedBits(LongBuffer w, int l)
+        {
+            words = w;
+            length = l;
+        }
+
+        @Override
+        public int length() { return length; }
+
+        @Override
+        public int get(int index)
+        {
+            return (int) (words.get(index >>> 6) >>> ~index) & 0x01;  // shift is taken mod 64: ~index == 63 - index % 64
+        }
+
+        @Override
+        public long getBits(int index, int count)
+        {
+            int  word   = index >>> 6;
+            int  offset = index & 0x3f;
+            long bits   = words.get(word) << offset;
+            if (offset + count > Long.SIZE)
+                bits |= words.get(word + 1) >>> Long.SIZE - offset;
+            return bits >>> Long.SIZE - count;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.company;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+
+import static com.company.ViterbiBMP.BITS_PER_PIXEL;
+
+/**
+ * Rate 1/n convolutional encoder of constraint length K, defined by its n generator polynomials.
+ *
+ * Generators are given in the usual octal notation: bit K - 1 taps the current input, bit 0 the oldest one kept,
+ * e.g. 0171 and 0133 for the K = 7 code of 802.11 and DVB. The first generator gives the most significant output bit.
+ * The shift register is the same as the decoders' trellis state: the current input at bit delay() = K - 1,
+ * the previous inputs below it, so symbol() is all StateTransitionLUT needs.
+ *
+ * For K up to 9 and up to 4 generators whole bytes are encoded with one lookup in BYTE_LUT,
+ * other codes go one bit at a time.
+ */
+public class ConvolutionalEncoder implements IEncoder
+{
+    private static final int MAX_CONSTRAINT_LENGTH = 16;
+    private static final int MAX_BYTE_LUT_DELAY    = 8;   // BYTE_LUT holds 2^delay × 256 ints
+    private static final int MAX_BYTE_LUT_OUTPUT   = 4;   // 8 steps of output fit an int
+    private static final int MAX_OUTPUT_LENGTH     = 8;
+
+    private final int    DELAY;
+    private final int[]  GENERATORS;
+    private final int    OUTPUT_LENGTH;
+    private final int[]  BYTE_LUT;  // [state << 8 | input byte] output of 8 steps, first step most significant, null if it does not fit
+    private final int[]  SYMBOLS;   // [register] output of one step
+
+    /**
+     * @param constraintLength K, the current input and the K - 1 previous ones
+     * @param generators One octal polynomial of K bits per output bit
+     */
+    public ConvolutionalEncoder(int constraintLength, int... generators) throws InvalidParameterException
+    {
+        if (constraintLength < 2 || constraintLength > MAX_CONSTRAINT_LENGTH)
+            throw new InvalidParameterException("Constraint length must be between 2 and " + MAX_CONSTRAINT_LENGTH + "!");
+        if (generators.length < 1 || generators.length > MAX_OUTPUT_LENGTH)
+            throw new InvalidParameterException("Encoder must have between 1 and " + MAX_OUTPUT_LENGTH + " generators!");
+        for (int g : generators) {
+            if (g <= 0 || g >>> constraintLength != 0)
+                throw new InvalidParameterException("Generator " + Integer.toOctalString(g) + " does not fit constraint length " + constraintLength + "!");
+        }
+
+        DELAY = constraintLength - 1;
+        GENERATORS = generators.clone();
+        OUTPUT_LENGTH = generators.length;
+        SYMBOLS = new int[2 << DELAY];
+        for (int register = 0; register < SYMBOLS.length; ++register) {
+            int symbol = 0;
+            for (int g : GENERATORS) {
+                symbol = symbol << 1 | Integer.bitCount(register & g) & 0x01;
+            }
+            SYMBOLS[register] = symbol;
+        }
+        BYTE_LUT = DELAY <= MAX_BYTE_LUT_DELAY && OUTPUT_LENGTH <= MAX_BYTE_LUT_OUTPUT ? fillByteLUT() : null;
+    }
+
+    /**
+     * IS-95 rate 1/2 code: K = 9, generators 753 and 561.
+     */
+    public static ConvolutionalEncoder is95RateHalf()
+    {
+        return new ConvolutionalEncoder(9, 0753, 0561);
+    }
+
+    /**
+     * K = 7, rate 1/2 code of 802.11 and DVB: generators 171 and 133.
+     */
+    public static ConvolutionalEncoder k7RateHalf()
+    {
+        return new ConvolutionalEncoder(7, 0171, 0133);
+    }
+
+    /**
+     * @param code "is95" (rate 1/3), "is95-half", "k7", or K and octal generators like "7:171,133"
+     */
+    public static ConvolutionalEncoder forName(String code) throws InvalidParameterException
+    {
+        switch (code) {
+            case "is95":
+                return new EncoderIS95();
+            case "is95-half":
+                return is95RateHalf();
+            case "k7":
+                return k7RateHalf();
+            default:
+                String[] parts = code.split(":");
+                if (parts.length != 2) throw new InvalidParameterException("Unknown code " + code + "!");
+                int[] generators = Arrays.stream(parts[1].split(",")).mapToInt(g -> Integer.parseInt(g.trim(), 8)).toArray();
+                return new ConvolutionalEncoder(Integer.parseInt(parts[0].trim()), generators);
+        }
+    }
+
+    @Override
+    public int delay() { return DELAY; }
+
+    /**
+     * @return Copy of the generator polynomials
+     */
+    @Override
+    public int[] generators() { return GENERATORS.clone(); }
+
+    @Override
+    public int outputLength() { return OUTPUT_LENGTH; }
+
+    @Override
+    public int symbol(int register) { return SYMBOLS[register]; }
+
+    @Override
+    public String encode(BufferedImage inImg) throws NullPointerException
+    {
+        BitBuffer bits = new BitBuffer(inImg.getWidth() * inImg.getHeight() * BITS_PER_PIXEL * OUTPUT_LENGTH);
+        encode(inImg, bits);
+        return bits.toString();
+    }
+
+    @Override
+    public void encode(BufferedImage inImg, BitBuffer out) throws NullPointerException
+    {
+        encode(inImg, 0, inImg.getHeight(), out);
+    }
+
+    /**
+     * Encode only rows fromRow (inclusive) to toRow (exclusive).
+     * The shift register starts from the last pixel of the preceding row,
+     * so consecutive calls produce the same bits as one call for the whole image.
+     *
+     * Pixels are read a row at a time and every colour byte is encoded with one lookup in BYTE_LUT.
+     */
+    @Override
+    public void encode(BufferedImage inImg, int fromRow, int toRow, BitBuffer out) throws NullPointerException
+    {
+        final int BYTE_OUTPUT = 8 * OUTPUT_LENGTH;
+        int   width = inImg.getWidth();
+        int[] row   = new int[width];
+        int   state = 0;
+        if (fromRow > 0)  // last DELAY input bits, the last one fed in at the top
+            state = Integer.reverse(inImg.getRGB(width - 1, fromRow - 1)) >>> Integer.SIZE - DELAY;
+
+        out.ensureCapacity(out.length() + width * (toRow - fromRow) * BITS_PER_PIXEL * OUTPUT_LENGTH);
+        for (int h = fromRow; h < toRow; ++h) {
+            readRow(inImg, h, row);
+            if (BYTE_LUT == null) {
+                for (int w = 0; w < width; ++w) {
+                    state = encodeBits(row[w], BITS_PER_PIXEL, state, out);
+                }
+                continue;
+            }
+            for (int w = 0; w < width; ++w) {
+                int rgb = row[w];
+                int r = rgb >>> 16 & 0xff;
+                int g = rgb >>> 8 & 0xff;
+                int b = rgb & 0xff;
+                long red = BYTE_LUT[state << 8 | r];
+                state = nextState(state, r);
+                long green = BYTE_LUT[state << 8 | g] & 0xffffffffL;  // no sign extension when 4 outputs fill the int
+                state = nextState(state, g);
+                out.appendBits(red << BYTE_OUTPUT | green, 2 * BYTE_OUTPUT);
+                out.appendBits(BYTE_LUT[state << 8 | b], BYTE_OUTPUT);
+                state = nextState(state, b);
+            }
+        }
+    }
+
+    /*
+     * State after 8 more inputs, given most significant first: the register grown by 8 inputs, the last one at the top,
+     * shifted down by 8.
+     */
+    private int nextState(int state, int input)
+    {
+        return (state | Integer.reverse(input) >>> 24 << DELAY) >>> 8;
+    }
+
+    /*
+     * Encode the count lowest bits of input, most significant first, one step at a time.
+     */
+    private int encodeBits(int input, int count, int state, BitBuffer out)
+    {
+        for (int i = count - 1; i >= 0; --i) {
+            int register = state | (input >>> i & 0x01) << DELAY;
+            out.appendBits(SYMBOLS[register], OUTPUT_LENGTH);
+            state = register >>> 1;
+        }
+        return state;
+    }
+
+    private int[] fillByteLUT()
+    {
+        int[] lut = new int[256 << DELAY];
+        for (int state = 0; state < 1 << DELAY; ++state) {
+            for (int input = 0; input < 256; ++input) {
+                int output = 0;
+                int s = state;
+                for (int i = 7; i >= 0; --i) {
+                    int register = s | (input >>> i & 0x01) << DELAY;
+                    output = output << OUTPUT_LENGTH | SYMBOLS[register];
+                    s = register >>> 1;
+                }
+                lut[state << 8 | input] = output;
+            }
+        }
+        return lut;
+    }
+
+    /*
+     * Copy one row of 0x..RRGGBB pixels. Straight from the data buffer when the image stores them like that.
+     */
+    private static void readRow(BufferedImage img, int y, int[] row)
+    {
+        int type = img.getType();
+        if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+                && img.getRaster().getParent() == null
+                && img.getRaster().getDataBuffer() instanceof DataBufferInt) {
+            int[] data = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+            System.arraycopy(data, y * row.length, row, 0, row.length);
+        } else {
+            img.getRGB(0, y, row.length, 1, row, 0, row.length);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+
+/**
+ * Convolutional (Forney) interleaver: the stream is dealt out to branches in turn, branch i delays its bits by i × depth
+ * of its own turns and the deinterleaver delays branch i by the rest, (branches - 1 - i) × depth.
+ * Consecutive bits of the channel are then branches × depth - 1 bits apart in the code-text, so a burst of up to
+ * branches bits becomes single errors that far apart, at about half the delay and memory of a block interleaver.
+ *
+ * Seen as a matrix with one column per branch, every column is delayed by a number of rows. Tiles of 64 rows are
+ * transposed (BitTranspose) into one word per column, columns are kept packed in a ring of words, and the delayed
+ * column words are read back and transposed into rows again, so no bit is moved on its own.
+ * The interleaver ends a stream with (branches - 1) × depth × branches 0 bits to empty its delay lines,
+ * the deinterleaver drops as many bits from the start of its output, so it gives back exactly the bits interleaved.
+ */
+public class ConvolutionalInterleaver implements IInterleaver
+{
+    public static final int MAX_BRANCHES = BitTranspose.TILE;
+
+    private final int branches;
+    private final int depth;
+
+    /**
+     * @param branches Branches, the longest burst spread out, 1 to 64
+     * @param depth Rows of delay added from one branch to the next
+     */
+    public ConvolutionalInterleaver(int branches, int depth) throws InvalidParameterException
+    {
+        if (branches < 1 || branches > MAX_BRANCHES)
+            throw new InvalidParameterException("Interleaver must have between 1 and " + MAX_BRANCHES + " branches!");
+        if (depth < 1 || (long) (branches - 1) * depth * branches > Integer.MAX_VALUE / 2)
+            throw new InvalidParameterException("Interleaver depth " + depth + " is out of range!");
+        this.branches = branches;
+        this.depth = depth;
+    }
+
+    /**
+     * Sized to the decoder's traceback like BlockInterleaver.forDepth(): the errors of a burst of up to burstBits
+     * end up more than a decoding window apart.
+     *
+     * @param windowBits Code-text bits of one decoding window, the decoding depth times the bits per symbol
+     * @param burstBits Longest burst to spread out, at most 64
+     */
+    public static ConvolutionalInterleaver forDepth(int windowBits, int burstBits) throws InvalidParameterException
+    {
+        if (burstBits < 1) throw new InvalidParameterException("Burst must be at least 1 bit!");
+        return new ConvolutionalInterleaver(burstBits, (windowBits + burstBits) / burstBits);
+    }
+
+    public int branches() { return branches; }
+
+    public int depth() { return depth; }
+
+    /**
+     * @return Bits between a bit entering the interleaver and leaving the deinterleaver
+     */
+    public int latency() { return (branches - 1) * depth * branches; }
+
+    @Override
+    public IBitStage interleaver() { return new Stage(false); }
+
+    @Override
+    public IBitStage deinterleaver() { return new Stage(true); }
+
+    @Override
+    public long pack() { return (long) CONVOLUTIONAL << 56 | (long) branches << 28 | depth; }
+
+    @Override
+    public String toString() { return "convolutional " + branches + "x" + depth; }
+
+    /*
+     * Delays every column of the stream by its own number of rows, a tile of 64 rows at a time.
+     */
+    private final class Stage extends BlockBitStage
+    {
+        private final int[]  delays;  // [branch] rows
+        private final int    flush;   // 0 bits appended at the end of the stream
+        private final long[] ring;    // [branch * ringWords + tile % ringWords] 64 rows of the branch's column
+        private final int    ringWords;
+        private final int    skip;    // bits dropped from the start of the output
+        private final long[] tile = new long[BitTranspose.TILE];
+        private       long   inBits;  // bits taken since the start of the stream, in whole tiles
+        private       long   limit;   // output bits of the stream, known once it ends
+        private       long   tiles;   // tiles taken since the start of the stream
+
+        Stage(boolean inverse)
+        {
+            super(BitTranspose.TILE * branches);
+            delays = new int[branches];
+            for (int i = 0; i < branches; ++i) {
+                delays[i] = (inverse ? branches - 1 - i : i) * depth;
+            }
+            flush = inverse ? 0 : latency();
+            skip = inverse ? latency() : 0;
+            ringWords = Integer.highestOneBit((branches - 1) * depth / BitTranspose.TILE + 2) << 1;
+            ring = new long[branches * ringWords];
+            limit = Long.MAX_VALUE;
+        }
+
+        @Override
+        protected void processBlocks(IBitSource in, int from, int blocks, BitBuffer out)
+        {
+            final int TILE = BitTranspose.TILE;
+            int mask = ringWords - 1;
+            for (int b = 0; b < blocks; ++b, ++tiles) {
+                int start = from + b * TILE * branches;
+                for (int k = 0; k < TILE; ++k) {
+                    tile[k] = in.getBits(start + k * branches, branches) << TILE - branches;
+                }
+                BitTranspose.transpose64(tile);
+
+                // store the columns of the tile, read them back delayed:
+                long row0 = tiles * TILE;
+                for (int i = 0; i < branches; ++i) {
+                    int base = i * ringWords;
+                    ring[base + (int) (tiles & mask)] = tile[i];
+                    long first = row0 - delays[i];  // may be before the stream, the ring holds 0s there
+                    long word = first >> 6;
+                    int offset = (int) (first & 0x3f);
+                    long column = ring[base + (int) (word & mask)];
+                    if (offset != 0)
+                        column = column << offset | ring[base + (int) (word + 1 & mask)] >>> TILE - offset;
+                    tile[i] = column;
+                }
+                Arrays.fill(tile, branches, TILE, 0);
+                BitTranspose.transpose64(tile);
+
+                for (int k = 0; k < TILE; ++k) {
+                    long position = (row0 + k) * branches - skip;
+                    if (position < 0) continue;
+                    int n = (int) Math.min(branches, limit - position);
+                    if (n <= 0) break;
+                    out.appendBits(tile[k] >>> TILE - n, n);
+                }
+            }
+            inBits += (long) blocks * TILE * branches;
+        }
+
+        @Override
+        protected void endBlocks(IBitSource rest, BitBuffer out)
+        {
+            int tileBits = BitTranspose.TILE * branches;
+            int tail = rest.length() + flush;
+            limit = inBits + tail - skip;
+            if (tail > 0) {
+                BitBuffer padded = new BitBuffer(tail + tileBits);
+                padded.append(rest, 0, rest.length());
+                padded.setLength((tail + tileBits - 1) / tileBits * tileBits);
+                processBlocks(padded, 0, padded.length() / tileBits, out);
+            }
+
+            Arrays.fill(ring, 0);
+            inBits = 0;
+            limit = Long.MAX_VALUE;
+            tiles = 0;
+        }
+    }
+}
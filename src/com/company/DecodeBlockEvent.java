@@ -0,0 +1,32 @@
+package com.company;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of one block (decoding window) of a decoder with DecoderMetrics set.
+ * One per window is a lot of events, so it is off unless a recording enables it,
+ * e.g. with a .jfc file setting com.company.DecodeBlock#enabled to true.
+ */
+@Name("com.company.DecodeBlock")
+@Label("Decode Block")
+@Category({"ViterbiBMP", "Decoder"})
+@Description("Decoding window traced back by a Viterbi decoder")
+@Enabled(false)
+class DecodeBlockEvent extends Event
+{
+    @Label("Best Path Metric")
+    @Description("Received bits the decoded path disagrees with")
+    int bestPathMetric;
+
+    @Label("Merge Depth")
+    @Description("Steps back the survivors of all states had merged, -1 if not within the block, -2 if not sampled")
+    int mergeDepth;
+
+    @Label("Bits")
+    int bits;
+}
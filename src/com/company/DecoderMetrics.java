@@ -0,0 +1,149 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+
+/**
+ * What a decoder saw while decoding: blocks (decoding windows) decoded, the best path metric of every block
+ * and how far back the survivors of all states had merged. Meant to be read while decoding goes on,
+ * so all methods are synchronized; decoders record once per block, next to which the lock costs nothing.
+ * Decoders sharing one object (BatchDecoder) add up into it.
+ *
+ * The best path metric of a block is the number of received bits its decoded path disagrees with,
+ * i.e. the channel errors the decoder corrected there as far as it can tell. Its distribution follows
+ * the channel quality, its sum is correctedBits(). Survivors merging well inside the decoding depth mean the blocks
+ * are long enough for the channel; a mean merge depth close to the depth, or unmerged blocks, mean they are too short.
+ */
+public class DecoderMetrics
+{
+    public static final int PATH_METRIC_BINS = 64;  // the last bin counts all metrics from PATH_METRIC_BINS - 1 up
+
+    private       long   blocks;
+    private       long   correctedBits;
+    private       int    maxMergeDepth;
+    private       int    maxPathMetric;
+    private       long   mergeDepthSum;
+    private       int    mergeSampling = 16;  // blocks per merge depth sample, 0 for none
+    private       long   mergeSamples;
+    private final long[] pathMetrics   = new long[PATH_METRIC_BINS];  // [metric] blocks whose best path has that metric
+    private       long   plainBits;
+    private       long   unmergedBlocks;
+
+    /**
+     * Finding the merge depth walks all survivors back, about as costly as the ACS steps of the block,
+     * so only every n-th block is sampled.
+     *
+     * @param n Blocks per merge depth sample, 0 for none
+     */
+    public synchronized void setMergeSampling(int n) throws InvalidParameterException
+    {
+        if (n < 0) throw new InvalidParameterException("Merge sampling must not be negative!");
+        mergeSampling = n;
+    }
+
+    /**
+     * @return true if the merge depth of the next block recorded should be sampled
+     */
+    public synchronized boolean sampleMerge() { return mergeSampling > 0 && blocks % mergeSampling == 0; }
+
+    /**
+     * @param bestPathMetric Path metric of the decoded path through the block
+     * @param bits Plain-text bits the block decoded to
+     */
+    public synchronized void recordBlock(int bestPathMetric, int bits)
+    {
+        ++blocks;
+        plainBits += bits;
+        correctedBits += bestPathMetric;
+        maxPathMetric = Math.max(maxPathMetric, bestPathMetric);
+        ++pathMetrics[Math.min(bestPathMetric, PATH_METRIC_BINS - 1)];
+    }
+
+    /**
+     * @param depth Steps back the survivors of all states had merged, -1 if they had not within the block. See AcsEngine.mergeDepth().
+     */
+    public synchronized void recordMergeDepth(int depth)
+    {
+        ++mergeSamples;
+        if (depth < 0) {
+            ++unmergedBlocks;
+        } else {
+            mergeDepthSum += depth;
+            maxMergeDepth = Math.max(maxMergeDepth, depth);
+        }
+    }
+
+    public synchronized long blocks() { return blocks; }
+
+    public synchronized long plainBits() { return plainBits; }
+
+    /**
+     * @return Sum of the best path metrics of all blocks: received bits the decoded paths disagree with
+     */
+    public synchronized long correctedBits() { return correctedBits; }
+
+    public synchronized int maxPathMetric() { return maxPathMetric; }
+
+    public synchronized double meanPathMetric() { return blocks == 0 ? 0 : (double) correctedBits / blocks; }
+
+    /**
+     * @param q Quantile, 0 to 1
+     * @return Lowest best path metric at least q of the blocks stay within, PATH_METRIC_BINS - 1 for that many or more
+     */
+    public synchronized int pathMetricQuantile(double q) throws InvalidParameterException
+    {
+        if (q < 0 || q > 1) throw new InvalidParameterException("Quantile must be between 0 and 1!");
+        long target = (long) Math.ceil(q * blocks);
+        long seen = 0;
+        for (int m = 0; m < PATH_METRIC_BINS; ++m) {
+            seen += pathMetrics[m];
+            if (seen >= target) return m;
+        }
+        return PATH_METRIC_BINS - 1;
+    }
+
+    /**
+     * @return [metric] blocks whose best path has that metric, the last bin counting all larger ones too
+     */
+    public synchronized long[] pathMetricHistogram() { return pathMetrics.clone(); }
+
+    public synchronized long mergeSamples() { return mergeSamples; }
+
+    /**
+     * @return Mean merge depth of the sampled blocks whose survivors merged
+     */
+    public synchronized double meanMergeDepth()
+    {
+        long merged = mergeSamples - unmergedBlocks;
+        return merged == 0 ? 0 : (double) mergeDepthSum / merged;
+    }
+
+    public synchronized int maxMergeDepth() { return maxMergeDepth; }
+
+    /**
+     * @return Sampled blocks whose survivors had not merged by the start of the block
+     */
+    public synchronized long unmergedBlocks() { return unmergedBlocks; }
+
+    public synchronized void reset()
+    {
+        blocks = 0;
+        plainBits = 0;
+        correctedBits = 0;
+        maxPathMetric = 0;
+        Arrays.fill(pathMetrics, 0);
+        mergeSamples = 0;
+        mergeDepthSum = 0;
+        maxMergeDepth = 0;
+        unmergedBlocks = 0;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return blocks + " blocks, " + plainBits + " bits, " + correctedBits + " bits corrected, path metric mean " +
+               (float) meanPathMetric() + " p90 " + pathMetricQuantile(0.9) + " max " + maxPathMetric +
+               ", merge depth mean " + (float) meanMergeDepth() + " max " + maxMergeDepth +
+               " (" + unmergedBlocks + " of " + mergeSamples + " unmerged)";
+    }
+}
@@ -0,0 +1,86 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Channel that is error free except for bursts of a fixed length.
+ *
+ * After every error free bit a burst starts with the burst probability,
+ * so bursts are on average 1 / burstProbability bits apart.
+ * Inside a burst bits are flipped with the error rate.
+ * Defaults: bursts of 32 bits with half of the bits flipped, 1000 bits apart on average.
+ */
+public class FixedBurstNoiseGenerator extends BurstNoiseGenerator
+{
+    private int    burstLength           = 32;
+    private double burstProbability      = 0.001;
+    private double burstErrorProbability = 0.5;
+    private double logNoBurst;
+
+    public FixedBurstNoiseGenerator()
+    {
+        super();
+        update();
+    }
+
+    /**
+     * Generator producing the same errors on every run with the same seed.
+     */
+    public FixedBurstNoiseGenerator(long seed)
+    {
+        super(seed);
+        update();
+    }
+
+    /**
+     * Set error rate inside bursts.
+     *
+     * @param r Error rate in parts per 10 000. 10 000 flips every bit of a burst.
+     */
+    @Override
+    public void setErrorRate(int r) throws InvalidParameterException
+    {
+        if (r < 0 || r > BOUND) throw new InvalidParameterException("ErrorRate must be between 0 and 10000!");
+        burstErrorProbability = (double) r / BOUND;
+        update();
+    }
+
+    /**
+     * @param l Bits in every burst
+     */
+    public void setBurstLength(int l) throws InvalidParameterException
+    {
+        if (l < 1) throw new InvalidParameterException("Burst length must be at least 1!");
+        burstLength = l;
+        update();
+    }
+
+    /**
+     * @param p Probability of a burst starting after an error free bit, 0 for never
+     */
+    public void setBurstProbability(double p) throws InvalidParameterException
+    {
+        if (!(p >= 0 && p <= 1)) throw new InvalidParameterException("Burst probability must be between 0 and 1!");
+        burstProbability = p;
+        update();
+    }
+
+    @Override
+    public double averageErrorProbability()
+    {
+        if (burstProbability == 0) return 0;
+        return burstErrorProbability * burstLength / (burstLength + 1 / burstProbability);
+    }
+
+    @Override
+    protected long drawStateLength(boolean bad)
+    {
+        return bad ? burstLength : drawMemorylessStateLength(logNoBurst);
+    }
+
+    private void update()
+    {
+        logNoBurst = Math.log1p(-burstProbability);
+        setErrorProbabilities(0, burstErrorProbability);
+    }
+}
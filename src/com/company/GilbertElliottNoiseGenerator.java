@@ -0,0 +1,98 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Two-state Gilbert–Elliott channel.
+ *
+ * After every bit the channel moves from the good to the bad state with probability goodToBad,
+ * and back with probability badToGood, so stays in a state are geometric with mean 1 / (leaving probability).
+ * Bits are flipped with the error rate of the state they are sent in.
+ * Defaults: no errors in the good state, half the bits flipped in the bad state,
+ * bursts of 10 bits on average, 1000 bits apart on average.
+ */
+public class GilbertElliottNoiseGenerator extends BurstNoiseGenerator
+{
+    private double badErrorProbability  = 0.5;
+    private double badToGood            = 0.1;
+    private double goodErrorProbability = 0.0;
+    private double goodToBad            = 0.001;
+    private double logStayBad;
+    private double logStayGood;
+
+    public GilbertElliottNoiseGenerator()
+    {
+        super();
+        update();
+    }
+
+    /**
+     * Generator producing the same errors on every run with the same seed.
+     */
+    public GilbertElliottNoiseGenerator(long seed)
+    {
+        super(seed);
+        update();
+    }
+
+    /**
+     * Set error rate in the bad state.
+     *
+     * @param r Error rate in parts per 10 000.
+     */
+    @Override
+    public void setErrorRate(int r) throws InvalidParameterException
+    {
+        if (r < 0 || r > BOUND) throw new InvalidParameterException("ErrorRate must be between 0 and 10000!");
+        badErrorProbability = (double) r / BOUND;
+        update();
+    }
+
+    /**
+     * Set error rate in the good state.
+     *
+     * @param r Error rate in parts per 10 000.
+     */
+    public void setGoodErrorRate(int r) throws InvalidParameterException
+    {
+        if (r < 0 || r > BOUND) throw new InvalidParameterException("ErrorRate must be between 0 and 10000!");
+        goodErrorProbability = (double) r / BOUND;
+        update();
+    }
+
+    /**
+     * @param toBad Probability of moving from the good to the bad state after a bit, 0 for never
+     * @param toGood Probability of moving from the bad to the good state after a bit, more than 0
+     */
+    public void setTransitionProbabilities(double toBad, double toGood) throws InvalidParameterException
+    {
+        if (!(toBad >= 0 && toBad <= 1)) throw new InvalidParameterException("Transition probabilities must be between 0 and 1!");
+        if (!(toGood > 0 && toGood <= 1)) throw new InvalidParameterException("Bursts must end: badToGood must be above 0 and at most 1!");
+        goodToBad = toBad;
+        badToGood = toGood;
+        update();
+    }
+
+    /**
+     * Stationary error rate: the bad state takes goodToBad / (goodToBad + badToGood) of the bits.
+     */
+    @Override
+    public double averageErrorProbability()
+    {
+        double bad = goodToBad / (goodToBad + badToGood);
+        return (1 - bad) * goodErrorProbability + bad * badErrorProbability;
+    }
+
+    @Override
+    protected long drawStateLength(boolean bad)
+    {
+        return drawMemorylessStateLength(bad ? logStayBad : logStayGood);
+    }
+
+    private void update()
+    {
+        logStayGood = Math.log1p(-goodToBad);
+        logStayBad  = Math.log1p(-badToGood);
+        setErrorProbabilities(goodErrorProbability, badErrorProbability);
+    }
+}
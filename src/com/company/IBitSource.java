@@ -0,0 +1,23 @@
+package com.company;
+
+/**
+ * Read-only packed bits, in code-text order.
+ * Lets decoders read a BitBuffer on the heap and a memory-mapped codeword file the same way.
+ */
+public interface IBitSource
+{
+    int  length();
+
+    /**
+     * @return Bit at index, 0 or 1
+     */
+    int  get(int index);
+
+    /**
+     * Read up to 64 consecutive bits. The bit at index ends up most significant.
+     *
+     * @param index Index of the first bit
+     * @param count Number of bits, 1 to 64
+     */
+    long getBits(int index, int count);
+}
@@ -0,0 +1,25 @@
+package com.company;
+
+/**
+ * One step of the code-text's way between the encoder and the decoder that reorders or thins out bits,
+ * e.g. puncturing or interleaving. A stage is fed a stream in pieces of any size and appends the bits
+ * that are ready; bits it still needs to finish a block are kept until the next piece or end().
+ * Instances keep the state of one stream and are not thread-safe.
+ */
+public interface IBitStage
+{
+    /**
+     * Feed count more bits of the stream, starting at from, and append the output that is ready to out.
+     */
+    void process(IBitSource in, int from, int count, BitBuffer out);
+
+    default void process(IBitSource in, BitBuffer out)
+    {
+        process(in, 0, in.length(), out);
+    }
+
+    /**
+     * End the stream: append the rest of the output to out. The stage is then ready for a new stream.
+     */
+    void end(BitBuffer out);
+}
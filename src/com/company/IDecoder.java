@@ -1,5 +1,7 @@
 package com.company;
 
+import java.security.InvalidParameterException;
+
 public interface IDecoder
 {
     /**
@@ -11,12 +13,91 @@ public interface IDecoder
      */
     byte[] decodeIS95(byte[] codeText, int numPixels);
 
+    /**
+     * Viterbi Hard Decision decoder working on packed bits.
+     *
+     * @param codeBits Packed code-text, outputLength() bits per symbol
+     * @param numPixels Number of pixels in original image
+     * @return Packed plain-text, BITS_PER_PIXEL bits per pixel
+     */
+    BitBuffer decodeIS95(IBitSource codeBits, int numPixels);
+
+    /**
+     * Same as decodeIS95(IBitSource, int) but writes into a buffer the caller keeps reusing.
+     * out is cleared first and only grows if it is too small, so repeated calls need not allocate.
+     *
+     * @param codeBits Packed code-text, outputLength() bits per symbol
+     * @param numPixels Number of pixels in original image
+     * @param out Receives the packed plain-text, BITS_PER_PIXEL bits per pixel
+     */
+    void decodeIS95(IBitSource codeBits, int numPixels, BitBuffer out);
+
+    /**
+     * Start decoding a new code-text stream from the encoder's initial state.
+     * The stream is then fed with decodeStream() and finished with endStream().
+     */
+    void beginStream();
+
+    /**
+     * Decode the next piece of a code-text stream.
+     * Symbols are buffered until a whole decoding window is available, so out may receive nothing.
+     * A piece may end in the middle of a symbol.
+     *
+     * @param codeBits Next piece of packed code-text
+     * @param out Buffer the decoded plain-text bits are appended to
+     */
+    void decodeStream(IBitSource codeBits, BitBuffer out);
+
+    /**
+     * Decode whatever is still buffered. The last window is padded,
+     * so out may receive more bits than the stream carried; the caller trims them.
+     *
+     * @param out Buffer the decoded plain-text bits are appended to
+     */
+    void endStream(BitBuffer out);
+
     /**
      * Sets the decoding depth of the Viterbi algorithm.
-     * Consequently, calculates MAX_PATH_METRIC and creates int[][] pathMetric
-     * and int[][] pathPreviousVertex arrays, size of which depends on decoding depth.
+     * Consequently, calculates MAX_PATH_METRIC and allocates the survivor memory,
+     * size of which depends on decoding depth.
      *
      * @param d Desired decoding depth
      */
     void setDecodingDepth(int d);
+
+    /**
+     * Decode depunctured code-text: the bits pattern drops were put back as 0s (PuncturePattern.depuncture())
+     * and are now treated as erasures, adding nothing to any branch metric.
+     * Symbols are counted from the start of every code-text or stream.
+     *
+     * @param pattern Pattern the code-text was punctured with, null for code-text that is not punctured
+     */
+    void setPuncturing(PuncturePattern pattern) throws InvalidParameterException;
+
+    /**
+     * Record every block decoded into m from now on: its best path metric and, sampled, its survivor merge depth.
+     * Decoders that do not decode in blocks ignore it.
+     *
+     * @param m Metrics to add to, null to stop recording
+     */
+    default void setMetrics(DecoderMetrics m) {}
+
+    /**
+     * Sets how many bits every path metric is kept in: 32, 16 or 8.
+     * Narrower metrics shrink the working set of the ACS kernel and are renormalized as they grow,
+     * so the decoded bits stay the same. 8 bits only fit hard decision branch metrics.
+     *
+     * @param bits Bits per path metric
+     */
+    void setMetricBits(int bits) throws InvalidParameterException;
+
+    /**
+     * @return Bits per path metric in use
+     */
+    int metricBits();
+
+    /**
+     * @return How many times path metrics were brought back down to keep them in metricBits() bits, over the decoder's life
+     */
+    long renormalizations();
 }
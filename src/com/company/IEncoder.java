@@ -6,10 +6,19 @@ public interface IEncoder
 {
     int     delay();
     String  encode(BufferedImage inImg) throws NullPointerException;
-    int     g0(int inputBitsLSR);
-    int     g1(int inputBitsLSR);
-    int     g2(int inputBitsLSR);
+    void    encode(BufferedImage inImg, BitBuffer out) throws NullPointerException;
+    void    encode(BufferedImage inImg, int fromRow, int toRow, BitBuffer out) throws NullPointerException;
+
+    /**
+     * @return Octal polynomial of every output bit, delay() + 1 bits each, the first one gives the most significant bit
+     */
+    int[]   generators();
+
     int     outputLength();
-    boolean withOutputBits();
 
+    /**
+     * @param register Current input at bit delay(), the delay() previous inputs below it, the oldest at bit 0
+     * @return Encoder output for the register, outputLength() bits, sent most significant first
+     */
+    int     symbol(int register);
 }
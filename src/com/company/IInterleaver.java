@@ -0,0 +1,68 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Reorders the code-text on its way through the channel so that a burst of errors reaches the decoder
+ * as errors far apart, each of which the Viterbi decoder corrects on its own.
+ * An interleaver only describes the permutation and never changes, interleaver() and deinterleaver()
+ * make the stages that apply it to one stream.
+ */
+public interface IInterleaver
+{
+    int BLOCK         = 1;  // kinds in the top byte of pack()
+    int CONVOLUTIONAL = 2;
+
+    /**
+     * @return New stage permuting one stream for the channel
+     */
+    IBitStage interleaver();
+
+    /**
+     * @return New stage undoing interleaver(): fed the interleaved stream it gives back the bits fed to interleaver()
+     */
+    IBitStage deinterleaver();
+
+    /**
+     * @return The interleaver in one long for the codeword file: kind in the top byte, two 28 bit parameters below
+     */
+    long pack();
+
+    /**
+     * Undo pack().
+     *
+     * @return The interleaver, null for 0
+     */
+    static IInterleaver unpack(long packed) throws InvalidParameterException
+    {
+        int a = (int) (packed >>> 28 & 0x0fffffff);
+        int b = (int) (packed & 0x0fffffff);
+        switch ((int) (packed >>> 56)) {
+            case 0:
+                return null;
+            case BLOCK:
+                return new BlockInterleaver(a, b);
+            case CONVOLUTIONAL:
+                return new ConvolutionalInterleaver(a, b);
+            default:
+                throw new InvalidParameterException("Unknown interleaver " + Long.toHexString(packed) + "!");
+        }
+    }
+
+    /**
+     * @param name "none", "block:<burst bits>" or "conv:<burst bits>"
+     * @param windowBits Code-text bits of one decoding window, see BlockInterleaver.forDepth()
+     * @return The interleaver, null for "none"
+     */
+    static IInterleaver forName(String name, int windowBits) throws InvalidParameterException
+    {
+        if (name.equals("none")) return null;
+
+        String[] parts = name.split(":");
+        if (parts.length == 2 && parts[0].equals("block"))
+            return BlockInterleaver.forDepth(windowBits, Integer.parseInt(parts[1].trim()));
+        if (parts.length == 2 && parts[0].equals("conv"))
+            return ConvolutionalInterleaver.forDepth(windowBits, Integer.parseInt(parts[1].trim()));
+        throw new InvalidParameterException("Unknown interleaver " + name + "!");
+    }
+}
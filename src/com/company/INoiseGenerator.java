@@ -19,6 +19,36 @@ public interface INoiseGenerator
      */
     String noisify(String s);
 
+    /**
+     * Simulate channel noise by flipping bits of a packed buffer in place.
+     *
+     * @param bits Buffer to pollute with noise.
+     * @return The same buffer.
+     */
+    BitBuffer noisify(BitBuffer bits);
+
+    /**
+     * Same as noisify(BitBuffer) but without resetting or printing the error statistics.
+     * Meant for passing a long signal through the channel piece by piece.
+     *
+     * @param bits Buffer to pollute with noise.
+     * @return The same buffer.
+     */
+    BitBuffer noisifyChunk(BitBuffer bits);
+
+    /**
+     * @return Bits flipped since the statistics were last reset.
+     * noisify() resets them, noisifyChunk() adds to them.
+     */
+    long errorCount();
+
+    /**
+     * @return Bits passed through the channel since the statistics were last reset.
+     */
+    long bitCount();
+
+    void resetStatistics();
+
     /**
      * Displays histogram of uniform distribution RNG.
      * Allows user to visually ensure distribution is uniform.
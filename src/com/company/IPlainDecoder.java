@@ -5,4 +5,5 @@ import java.awt.image.BufferedImage;
 public interface IPlainDecoder
 {
     BufferedImage decodeBMP(byte[] asciiBytes, int width, int height);
+    BufferedImage decodeBMP(IBitSource bits, int width, int height);
 }
@@ -10,4 +10,9 @@ import java.nio.file.Path;
 public interface IPlainEncoder
 {
     String encode(BufferedImage inImg) throws NullPointerException;
+
+    /**
+     * Append 24 bits per pixel to a packed buffer.
+     */
+    void encode(BufferedImage inImg, BitBuffer out) throws NullPointerException;
 }
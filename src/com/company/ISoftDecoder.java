@@ -0,0 +1,50 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+
+public interface ISoftDecoder
+{
+    /**
+     * Viterbi Soft Decision decoder.
+     *
+     * @param codeSoft Quantized soft code-text, outputLength() values per symbol
+     * @param numPixels Number of pixels in original image
+     * @return Packed plain-text, BITS_PER_PIXEL bits per pixel
+     */
+    BitBuffer decodeIS95(SoftBuffer codeSoft, int numPixels);
+
+    /**
+     * Same as decodeIS95(SoftBuffer, int) but writes into a buffer the caller keeps reusing.
+     *
+     * @param codeSoft Quantized soft code-text, outputLength() values per symbol
+     * @param numPixels Number of pixels in original image
+     * @param out Cleared, then receives the packed plain-text, BITS_PER_PIXEL bits per pixel
+     */
+    void decodeIS95(SoftBuffer codeSoft, int numPixels, BitBuffer out);
+
+    /**
+     * Sets the decoding depth of the Viterbi algorithm and allocates the survivor memory.
+     *
+     * @param d Desired decoding depth
+     */
+    void setDecodingDepth(int d);
+
+    /**
+     * Sets how many bits every path metric is kept in: 32, 16 or 8.
+     * Narrower metrics shrink the working set of the ACS kernel and are renormalized as they grow,
+     * so the decoded bits stay the same. 8 bits only fit hard decision branch metrics.
+     *
+     * @param bits Bits per path metric
+     */
+    void setMetricBits(int bits) throws InvalidParameterException;
+
+    /**
+     * @return Bits per path metric in use
+     */
+    int metricBits();
+
+    /**
+     * @return How many times path metrics were brought back down to keep them in metricBits() bits, over the decoder's life
+     */
+    long renormalizations();
+}
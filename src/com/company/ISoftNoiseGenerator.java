@@ -0,0 +1,24 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Channel that can hand over what was received as soft values instead of hard bits.
+ */
+public interface ISoftNoiseGenerator extends INoiseGenerator
+{
+    /**
+     * @param q Quantization bits per soft value, 1 to 4. 3 or 4 keep most of the soft decision gain.
+     */
+    void setQuantizationBits(int q) throws InvalidParameterException;
+
+    /**
+     * Send the bits through the channel and quantize what is received.
+     * Resets and prints the error statistics, counting the values a hard decision would get wrong.
+     *
+     * @param bits Bits to send
+     * @param out Cleared, then receives one soft value per bit
+     * @return out
+     */
+    SoftBuffer noisifySoft(BitBuffer bits, SoftBuffer out);
+}
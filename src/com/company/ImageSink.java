@@ -0,0 +1,66 @@
+package com.company;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import static com.company.ViterbiBMP.BITS_PER_PIXEL;
+
+/**
+ * Rebuilds a TYPE_INT_RGB image from plain-text that arrives in pieces, as a decoder emits it.
+ * Pixels are unpacked straight into the int[] behind the image's DataBufferInt, a row or more at a time,
+ * with no per pixel setRGB() and its colour model conversion. A pixel split between pieces is carried over.
+ * Bits past the last pixel (decoder padding) are dropped.
+ */
+public class ImageSink
+{
+    private final BitBuffer     carry = new BitBuffer(BITS_PER_PIXEL);  // bits of a pixel split between pieces
+    private final BufferedImage image;
+    private final int[]         pixels;
+    private       int           filled;  // pixels written so far
+
+    public ImageSink(int width, int height)
+    {
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    public void append(IBitSource bits)
+    {
+        append(bits, 0, bits.length());
+    }
+
+    /**
+     * Append count plain-text bits of bits starting at from.
+     */
+    public void append(IBitSource bits, int from, int count)
+    {
+        int end = from + count;
+
+        // complete the pixel left over from the previous piece:
+        if (carry.length() > 0) {
+            int n = Math.min(BITS_PER_PIXEL - carry.length(), count);
+            carry.append(bits, from, n);
+            from += n;
+            if (carry.length() < BITS_PER_PIXEL) return;
+            if (filled < pixels.length) pixels[filled++] = (int) carry.getBits(0, BITS_PER_PIXEL);
+            carry.clear();
+        }
+
+        int whole = Math.min((end - from) / BITS_PER_PIXEL, pixels.length - filled);
+        SymbolUnpacker.unpack(bits, from, BITS_PER_PIXEL, pixels, filled, whole);
+        filled += whole;
+        from += whole * BITS_PER_PIXEL;
+
+        if (filled < pixels.length) carry.append(bits, from, end - from);
+    }
+
+    /**
+     * @return Rows complete so far
+     */
+    public int rowsDone() { return filled / image.getWidth(); }
+
+    /**
+     * @return The image, rows not complete yet are black
+     */
+    public BufferedImage image() { return image; }
+}
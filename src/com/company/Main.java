@@ -1,7 +1,11 @@
 package com.company;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.InvalidParameterException;
 
 public class Main
 {
@@ -11,8 +15,8 @@ public class Main
 //        Path imagePath = Paths.get("assets", "tester.bmp");
         if (args.length > 1) imagePath = Paths.get(args[1]);
 
-        Path textPath = Paths.get("assets", "bee100.txt");
-//        Path textPath = Paths.get("assets", "tester.txt");
+        Path textPath = Paths.get("assets", "bee100.vcw");
+//        Path textPath = Paths.get("assets", "tester.vcw");
         if (args.length > 2) textPath = Paths.get(args[2]);
 
         Path outImgPath = Paths.get("assets", "out100.bmp");
@@ -22,8 +26,8 @@ public class Main
         int errorRate = 10;
         if (args.length > 4) errorRate = Integer.parseInt(args[4]);
 
-        Path outIS95Path = Paths.get("assets", "outIS95.txt");
-//        Path outIS95Path = Paths.get("assets", "testerIS95.txt");
+        Path outIS95Path = Paths.get("assets", "outIS95.vcw");
+//        Path outIS95Path = Paths.get("assets", "testerIS95.vcw");
         if (args.length > 5) outIS95Path = Paths.get(args[5]);
 
         int decodingDepth = 60;
@@ -33,21 +37,89 @@ public class Main
 //        Path decodedImgPath = Paths.get("assets", "testeroutIS95.bmp");
         if (args.length > 7) decodedImgPath = Paths.get(args[7]);
 
+        boolean streaming = false;
+        if (args.length > 8) streaming = Boolean.parseBoolean(args[8]);
+
+        int quantizationBits = 0;  // 0 for hard decision decoding
+        if (args.length > 9) quantizationBits = Integer.parseInt(args[9]);
+
+        Path asciiExportPath = null;  // '0'/'1' copy of the codeword file, for debugging
+        if (args.length > 10) asciiExportPath = Paths.get(args[10]);
+
+        String code = "is95";  // see ConvolutionalEncoder.forName()
+        if (args.length > 11) code = args[11];
+
+        String punctureRate = "1";  // "2/3" or "3/4" to puncture the code-text, "1" for none
+        if (args.length > 12) punctureRate = args[12];
+
+        String interleaver = "none";  // "block:<burst bits>" or "conv:<burst bits>", see IInterleaver.forName()
+        if (args.length > 13) interleaver = args[13];
+
+        Path metricsPath = null;  // "name value" lines of PipelineMetrics, none if not given
+        if (args.length > 14) metricsPath = Paths.get(args[14]);
+
+        int minDecodingDepth = 0;  // > 0 to let the traceback length adapt between it and decodingDepth
+        if (args.length > 15) minDecodingDepth = Integer.parseInt(args[15]);
+
+        // the soft decision run has none of the hard decision pipeline's stages:
+        if (quantizationBits > 0 && (asciiExportPath != null || !punctureRate.equals("1") || !interleaver.equals("none") ||
+                                     metricsPath != null || minDecodingDepth > 0))
+            throw new InvalidParameterException("[ Main ] Soft decision decoding takes no ASCII export, puncture rate, " +
+                                                "interleaver, metrics path or minimum decoding depth");
+
         IPlainEncoder plainEncoder = new PlainEncoder();
         IPlainDecoder plainDecoder = new PlainDecoder();
 
         INoiseGenerator noiseGenerator = new NoiseGenerator();
+//        INoiseGenerator noiseGenerator = new GilbertElliottNoiseGenerator();
+//        INoiseGenerator noiseGenerator = new FixedBurstNoiseGenerator();
         noiseGenerator.setErrorRate(errorRate);
 
-        IEncoder is95Encoder = new EncoderIS95();
-        IDecoder viterbiDecoder = new ViterbiDecoder(is95Encoder);
-        viterbiDecoder.setDecodingDepth(decodingDepth);
+        IEncoder is95Encoder = ConvolutionalEncoder.forName(code);
+        // punctured code-text needs look-ahead behind every bit, which the ends of ViterbiDecoder's windows do not have:
+        IDecoder viterbiDecoder;
+        if (minDecodingDepth > 0) {
+            SlidingViterbiDecoder slidingDecoder = new SlidingViterbiDecoder(is95Encoder);
+            slidingDecoder.setAdaptiveDepth(minDecodingDepth, decodingDepth);
+            viterbiDecoder = slidingDecoder;
+        } else if (!punctureRate.equals("1")) {
+            viterbiDecoder = new SlidingViterbiDecoder(is95Encoder);
+            viterbiDecoder.setDecodingDepth(decodingDepth);
+        } else {
+            viterbiDecoder = new ViterbiDecoder(is95Encoder);
+            viterbiDecoder.setDecodingDepth(decodingDepth);
+        }
 
-        ViterbiBMP viterbi = new ViterbiBMP(plainEncoder, plainDecoder, noiseGenerator, is95Encoder, viterbiDecoder);
+        ISoftNoiseGenerator awgnChannel = new AwgnNoiseGenerator();
+        awgnChannel.setErrorRate(errorRate);  // same raw bit error rate as the hard channel
+
+        ISoftDecoder softDecoder = new SoftViterbiDecoder(is95Encoder);
+        softDecoder.setDecodingDepth(decodingDepth);
+
+        ViterbiBMP viterbi = new ViterbiBMP(plainEncoder, plainDecoder, noiseGenerator, is95Encoder, viterbiDecoder,
+                                            awgnChannel, softDecoder);
 //        ViterbiBMP viterbi = new ViterbiBMP(plainEncoder, plainDecoder, null, is95Encoder, viterbiDecoder);
+        viterbi.setAsciiExport(asciiExportPath);
+        if (!punctureRate.equals("1")) viterbi.setPuncturing(PuncturePattern.forRate(is95Encoder, punctureRate));
+        viterbi.setInterleaving(IInterleaver.forName(interleaver, decodingDepth * is95Encoder.outputLength()));
+        PipelineMetrics metrics = metricsPath == null ? null : new PipelineMetrics();
+        viterbi.setMetrics(metrics);
 
 //        viterbi.runPlain(imagePath, textPath, outImgPath);
-        viterbi.runIS95(imagePath, outIS95Path, decodedImgPath);
+        if (quantizationBits > 0)
+            viterbi.runIS95Soft(imagePath, outIS95Path, decodedImgPath, quantizationBits);
+        else if (streaming)
+            viterbi.runIS95Streaming(imagePath, outIS95Path, decodedImgPath);
+        else
+            viterbi.runIS95(imagePath, outIS95Path, decodedImgPath);
         viterbi.displayErrors(imagePath, decodedImgPath);
+
+        if (metrics != null) {
+            try (OutputStream out = Files.newOutputStream(metricsPath)) {
+                metrics.write(out);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
     }
 }
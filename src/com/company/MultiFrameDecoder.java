@@ -0,0 +1,281 @@
+package com.company;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.company.ViterbiBMP.BITS_PER_PIXEL;
+
+/**
+ * Decodes up to LANES short frames at once, one frame per vector lane: every ACS step of the trellis is done
+ * for all frames with the same vector instructions, so the cost of a step is shared by the whole batch
+ * instead of being paid once per frame. Suits batches of small images, like thumbnails,
+ * whose trellis is too small a job to split across the states of one frame.
+ * Needs --add-modules jdk.incubator.vector to compile and run.
+ *
+ * Every frame is decoded exactly like ViterbiDecoder does, window by window, and gives the same bits.
+ * Path metrics are [state × LANES + lane], so a state's metrics of all frames load as one vector.
+ * The branches and their codewords come from the shared StateTransitionLUT; each step only computes
+ * the distance of every frame's symbol to every codeword, and each branch loads the row of its codeword.
+ * Decisions of a window are kept as a bit per state and frame, frames are traced back one by one.
+ *
+ * Codes of a few states (constraint length 3 or less) gain nothing, their steps are too short to hide the scalar
+ * branch metrics and traceback.
+ *
+ * Frames of a batch should be the same length. Shorter ones are padded like ViterbiDecoder's last window, decoded and dropped.
+ */
+public class MultiFrameDecoder
+{
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    public  static final int                    LANES   = SPECIES.length();
+
+    private final int             DELAY;
+    private final int             HALF_STATES;
+    private final int             MASK;
+    private final int             NUM_CODEWORDS;
+    private final int             NUM_STATES;
+    private final int             OUTPUT_LENGTH;
+    private final int             WORDS;            // decision words per lane and step, one per 32 states
+    private final int[]           branchCodewords;  // [4 * j + (input << 1 | predecessor & 1)] encoder output on branch in butterfly j
+    private final int[]           codewordMetrics;  // [codeword * LANES + lane] distance of the frame's current symbol to codeword
+    private       int[]           decisions;        // [(step * WORDS + state / 32) * LANES + lane] bit state % 32: lowest bit of the predecessor
+    private       int             decodingDepth;
+    private final IEncoder        encoder;
+    private       int[]           metric;           // [state * LANES + lane]
+    private       int[]           nextMetric;
+    private       int             paddingSymbol;    // of frames that have ended, like ViterbiDecoder's
+    private       PuncturePattern puncturing;
+    private       int[]           symbols;          // [step * LANES + lane] symbols of the current window
+    private final int[]           terminalNodes = new int[LANES];
+    private       int[]           window;           // symbols of one frame's window, before they are spread over the lanes
+
+    public MultiFrameDecoder(IEncoder e)
+    {
+        encoder       = e;
+        DELAY         = encoder.delay();
+        NUM_STATES    = 1 << DELAY;
+        HALF_STATES   = NUM_STATES >>> 1;
+        MASK          = NUM_STATES - 1;
+        OUTPUT_LENGTH = encoder.outputLength();
+        NUM_CODEWORDS = 1 << OUTPUT_LENGTH;
+        WORDS         = (NUM_STATES + 31) >>> 5;
+
+        StateTransitionLUT transitions = StateTransitionLUT.of(encoder);
+        branchCodewords = new int[2 * NUM_STATES];
+        for (int b = 0; b < branchCodewords.length; ++b) {
+            branchCodewords[b] = transitions.branchCodeword(b);
+        }
+        codewordMetrics = new int[NUM_CODEWORDS * LANES];
+        metric          = new int[NUM_STATES * LANES];
+        nextMetric      = new int[NUM_STATES * LANES];
+        setDecodingDepth(60);
+    }
+
+    /**
+     * @param d Symbols per window, at least the encoder's delay
+     */
+    public void setDecodingDepth(int d) throws InvalidParameterException
+    {
+        if (d < DELAY) throw new InvalidParameterException("Decoding depth must be at least " + DELAY + "!");
+        decodingDepth = d;
+        decisions = new int[d * WORDS * LANES];
+        symbols = new int[d * LANES];
+        window = new int[d];
+    }
+
+    public int decodingDepth() { return decodingDepth; }
+
+    /**
+     * @param pattern Pattern all frames were punctured with and depunctured again, null for none. See IDecoder.setPuncturing().
+     */
+    public void setPuncturing(PuncturePattern pattern) throws InvalidParameterException
+    {
+        if (pattern != null) pattern.checkFits(encoder);
+        puncturing = pattern;
+        paddingSymbol = pattern == null ? 0 : NUM_CODEWORDS - 1 << OUTPUT_LENGTH;
+    }
+
+    /**
+     * Decode any number of frames, LANES at a time.
+     *
+     * @param numPixels Pixels of every frame, decoded bits past them are dropped
+     * @return Decoded bits of every frame, in order
+     */
+    public List<BitBuffer> decodeAll(List<? extends IBitSource> frames, int numPixels)
+    {
+        List<BitBuffer> decoded = new ArrayList<>(frames.size());
+        for (int i = 0; i < frames.size(); i += LANES) {
+            List<? extends IBitSource> batch = frames.subList(i, Math.min(i + LANES, frames.size()));
+            BitBuffer[] out = new BitBuffer[batch.size()];
+            for (int f = 0; f < out.length; ++f) {
+                out[f] = new BitBuffer(batch.get(f).length() / OUTPUT_LENGTH + decodingDepth);
+            }
+            decode(batch, numPixels, out);
+            decoded.addAll(Arrays.asList(out));
+        }
+        return decoded;
+    }
+
+    /**
+     * Decode up to LANES frames at once.
+     *
+     * @param numPixels Pixels of every frame, decoded bits past them are dropped
+     * @param out One buffer per frame, cleared first
+     */
+    public void decode(List<? extends IBitSource> frames, int numPixels, BitBuffer[] out) throws InvalidParameterException
+    {
+        if (frames.size() > LANES || out.length < frames.size())
+            throw new InvalidParameterException("At most " + LANES + " frames, and an output buffer for each, can be decoded at once!");
+
+        int numSymbols = 0;
+        for (int f = 0; f < frames.size(); ++f) {
+            numSymbols = Math.max(numSymbols, frames.get(f).length() / OUTPUT_LENGTH);
+            out[f].clear();
+            out[f].ensureCapacity(frames.get(f).length() / OUTPUT_LENGTH + decodingDepth);
+        }
+
+        Arrays.fill(terminalNodes, 0);
+        for (int i = 0; i < numSymbols; i += decodingDepth) {
+            loadWindow(frames, i);
+            decodeWindow(frames.size(), out);
+        }
+        for (int f = 0; f < frames.size(); ++f) {
+            // drop the windows decoded past a shorter frame's own last one, ViterbiDecoder never decodes them:
+            int frameWindows = (frames.get(f).length() / OUTPUT_LENGTH + decodingDepth - 1) / decodingDepth;
+            out[f].truncate((int) Math.min((long) numPixels * BITS_PER_PIXEL, (long) frameWindows * decodingDepth));
+        }
+    }
+
+    /*
+     * Spread the next window of every frame over the lanes, with erasures above the bits of punctured symbols.
+     * Frames that have ended and unused lanes get the padding of ViterbiDecoder's last window:
+     * 0 symbols, or erased ones with puncturing.
+     */
+    private void loadWindow(List<? extends IBitSource> frames, int first)
+    {
+        Arrays.fill(symbols, paddingSymbol);
+        for (int f = 0; f < frames.size(); ++f) {
+            IBitSource frame = frames.get(f);
+            int n = Math.max(0, Math.min(decodingDepth, frame.length() / OUTPUT_LENGTH - first));
+            SymbolUnpacker.unpack(frame, first * OUTPUT_LENGTH, OUTPUT_LENGTH, window, 0, n);
+            for (int k = 0; k < n; ++k) {
+                int erased = puncturing == null ? 0 : puncturing.erasures(first + k) << OUTPUT_LENGTH;
+                symbols[k * LANES + f] = window[k] | erased;
+            }
+        }
+    }
+
+    private void decodeWindow(int numFrames, BitBuffer[] out)
+    {
+        // no paths exist in the beginning, all but the starting node of every frame get metric maximum + 1:
+        Arrays.fill(metric, OUTPUT_LENGTH * decodingDepth + 1);
+        for (int lane = 0; lane < LANES; ++lane) {
+            metric[terminalNodes[lane] * LANES + lane] = 0;
+        }
+
+        for (int k = 0; k < decodingDepth; ++k) {
+            fillCodewordMetrics(k);
+            for (int j = 0; j < HALF_STATES; j += 32) {
+                butterflies(j, Math.min(j + 32, HALF_STATES), k);
+            }
+            int[] m = metric;
+            metric = nextMetric;
+            nextMetric = m;
+        }
+
+        bestStates();
+        for (int f = 0; f < numFrames; ++f) {
+            traceback(f, out[f]);
+        }
+    }
+
+    /*
+     * Distance of every lane's symbol of step k to every codeword, not counting erased bits.
+     */
+    private void fillCodewordMetrics(int k)
+    {
+        for (int lane = 0; lane < LANES; ++lane) {
+            int symbol = symbols[k * LANES + lane];
+            int counted = ~(symbol >>> OUTPUT_LENGTH) & NUM_CODEWORDS - 1;
+            for (int c = 0; c < NUM_CODEWORDS; ++c) {
+                codewordMetrics[c * LANES + lane] = Integer.bitCount((symbol ^ c) & counted);
+            }
+        }
+    }
+
+    /*
+     * Butterflies from to to of step k in all lanes: states 2j and 2j + 1 to j (input 0) and j + HALF_STATES (input 1).
+     * On a tie the odd predecessor wins, like in AcsEngine. The decisions of the up to 32 states reached
+     * on either side are collected as bits of one word per lane and stored at once.
+     */
+    private void butterflies(int from, int to, int k)
+    {
+        IntVector low  = IntVector.zero(SPECIES);
+        IntVector high = IntVector.zero(SPECIES);
+        for (int j = from; j < to; ++j) {
+            int b = 4 * j;
+            IntVector m0 = IntVector.fromArray(SPECIES, metric, 2 * j * LANES);
+            IntVector m1 = IntVector.fromArray(SPECIES, metric, (2 * j + 1) * LANES);
+
+            IntVector a0 = m0.add(IntVector.fromArray(SPECIES, codewordMetrics, branchCodewords[b] * LANES));
+            IntVector a1 = m1.add(IntVector.fromArray(SPECIES, codewordMetrics, branchCodewords[b + 1] * LANES));
+            VectorMask<Integer> dLow = a1.compare(VectorOperators.LE, a0);
+            a0.blend(a1, dLow).intoArray(nextMetric, j * LANES);
+            low = low.blend(low.or(1 << (j & 0x1f)), dLow);
+
+            IntVector c0 = m0.add(IntVector.fromArray(SPECIES, codewordMetrics, branchCodewords[b + 2] * LANES));
+            IntVector c1 = m1.add(IntVector.fromArray(SPECIES, codewordMetrics, branchCodewords[b + 3] * LANES));
+            VectorMask<Integer> dHigh = c1.compare(VectorOperators.LE, c0);
+            c0.blend(c1, dHigh).intoArray(nextMetric, (j + HALF_STATES) * LANES);
+            high = high.blend(high.or(1 << (j + HALF_STATES & 0x1f)), dHigh);
+        }
+
+        int lowWord = from >>> 5;
+        int highWord = from + HALF_STATES >>> 5;
+        if (lowWord == highWord) {  // fewer than 64 states, both halves share a word
+            low.or(high).intoArray(decisions, (k * WORDS + lowWord) * LANES);
+        } else {
+            low.intoArray(decisions, (k * WORDS + lowWord) * LANES);
+            high.intoArray(decisions, (k * WORDS + highWord) * LANES);
+        }
+    }
+
+    /*
+     * State with the lowest path metric of every lane, the lowest numbered one on a tie, into terminalNodes.
+     */
+    private void bestStates()
+    {
+        IntVector best = IntVector.fromArray(SPECIES, metric, 0);
+        IntVector node = IntVector.zero(SPECIES);
+        for (int state = 1; state < NUM_STATES; ++state) {
+            IntVector m = IntVector.fromArray(SPECIES, metric, state * LANES);
+            VectorMask<Integer> lower = m.compare(VectorOperators.LT, best);
+            best = best.blend(m, lower);
+            node = node.blend(state, lower);
+        }
+        node.intoArray(terminalNodes, 0);
+    }
+
+    /*
+     * Append the input bits of the lane's best path through the window, oldest first.
+     */
+    private void traceback(int lane, BitBuffer out)
+    {
+        int state = terminalNodes[lane];
+        int base = out.length();
+        out.setLength(base + decodingDepth);
+        for (int t = decodingDepth - 1; t >= 0; --t) {
+            if (state >>> DELAY - 1 != 0) {  // input bit is shifted in at the top of the state
+                out.set(base + t, 1);
+            }
+            int low = decisions[(t * WORDS + (state >>> 5)) * LANES + lane] >>> (state & 0x1f) & 1;
+            state = state << 1 & MASK | low;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+
+/**
+ * Scalar Add-Compare-Select kernel with path metrics in shorts or bytes,
+ * a half or a quarter of the metric working set of AcsEngine.
+ *
+ * Metrics are kept relative to an int offset like in AcsEngine, only with thresholds fitting the narrow width.
+ * With B the largest branch metric, metrics never spread more than DELAY × B apart, so
+ * states nobody reached get UNREACHABLE, above anything a real path reaches in its first DELAY steps, and
+ * once state 0 passes RENORMALIZE_AT the lowest metric is taken out, before anything can pass the largest value.
+ * That holds for B up to MAX_BRANCH_METRIC: (largest value) / (2 × DELAY + 1),
+ * which for bytes is 7, enough for hard decisions only, and for shorts 1927.
+ * metric() and the decisions, ties included, are the same as with AcsEngine.
+ */
+public class NarrowAcsEngine extends AcsEngine
+{
+    private final int     DELAY;
+    private final int     GROUP;
+    private final int     HALF_STATES;
+    private final int     MAX_BRANCH_METRIC;
+    private final int     METRIC_BITS;
+    private final int     NUM_STATES;
+    private final int     RENORMALIZE_AT;
+    private final int     UNREACHABLE;
+    private       byte[]  byteMetric;
+    private final long[]  decisions;  // decisions of the current step, in AcsEngine's packed layout
+    private       byte[]  nextByteMetric;
+    private       short[] nextShortMetric;
+    private       int     offset;     // added to every stored metric
+    private       short[] shortMetric;
+
+    /**
+     * @param metricBits 16 or 8
+     */
+    public NarrowAcsEngine(IEncoder encoder, StateTransitionLUT transitions, int metricBits) throws InvalidParameterException
+    {
+        super(encoder, transitions);
+        DELAY       = encoder.delay();
+        NUM_STATES  = 1 << DELAY;
+        HALF_STATES = NUM_STATES >>> 1;
+        GROUP       = Math.min(Long.SIZE, HALF_STATES);
+        METRIC_BITS = metricBits;
+        decisions   = new long[(NUM_STATES + Long.SIZE - 1) / Long.SIZE];
+
+        int largest;
+        if (metricBits == Short.SIZE) {
+            largest = Short.MAX_VALUE;
+            shortMetric = new short[NUM_STATES];
+            nextShortMetric = new short[NUM_STATES];
+        } else if (metricBits == Byte.SIZE) {
+            largest = Byte.MAX_VALUE;
+            byteMetric = new byte[NUM_STATES];
+            nextByteMetric = new byte[NUM_STATES];
+        } else {
+            throw new InvalidParameterException("Narrow path metrics must have 16 or 8 bits!");
+        }
+        MAX_BRANCH_METRIC = largest / (2 * DELAY + 1);
+        UNREACHABLE       = (DELAY + 1) * MAX_BRANCH_METRIC;
+        RENORMALIZE_AT    = largest - (DELAY + 1) * MAX_BRANCH_METRIC;
+        if (encoder.outputLength() > MAX_BRANCH_METRIC)
+            throw new InvalidParameterException(metricBits + " bit path metrics are too narrow for " + DELAY + " steps of delay!");
+    }
+
+    @Override
+    public int metricBits() { return METRIC_BITS; }
+
+    @Override
+    public void start(int startingNode, int unreachable)
+    {
+        int u = Math.min(unreachable, UNREACHABLE);
+        for (int state = 0; state < NUM_STATES; ++state) {
+            store(state, state == startingNode ? 0 : u);
+        }
+        offset = 0;
+        restart();
+    }
+
+    /**
+     * @throws InvalidParameterException if a codeword metric is too large for the metric width
+     */
+    @Override
+    public void stepSoft(int[] codewordMetrics)
+    {
+        for (int m : codewordMetrics) {
+            if (m > MAX_BRANCH_METRIC)
+                throw new InvalidParameterException("Branch metric " + m + " does not fit " + METRIC_BITS + " bit path metrics," +
+                                                    " at most " + MAX_BRANCH_METRIC + " can!");
+        }
+        super.stepSoft(codewordMetrics);
+    }
+
+    @Override
+    public int bestState()
+    {
+        int best = 0;
+        for (int state = 1; state < NUM_STATES; ++state) {
+            if (load(state) < load(best)) {
+                best = state;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public int metric(int state) { return load(state) + offset; }
+
+    @Override
+    public void normalize(int by)
+    {
+        offset -= by;
+    }
+
+    @Override
+    protected void step(int[] bm)
+    {
+        Arrays.fill(decisions, 0);
+        if (shortMetric != null) {
+            stepShort(bm);
+            short[] m = shortMetric;
+            shortMetric = nextShortMetric;
+            nextShortMetric = m;
+        } else {
+            stepByte(bm);
+            byte[] m = byteMetric;
+            byteMetric = nextByteMetric;
+            nextByteMetric = m;
+        }
+        if (load(0) > RENORMALIZE_AT) renormalize();
+        storeDecisions(decisions);
+    }
+
+    private int load(int state)
+    {
+        return shortMetric != null ? shortMetric[state] : byteMetric[state];
+    }
+
+    private void store(int state, int value)
+    {
+        if (shortMetric != null)
+            shortMetric[state] = (short) value;
+        else
+            byteMetric[state] = (byte) value;
+    }
+
+    private void renormalize()
+    {
+        int min = load(0);
+        for (int state = 1; state < NUM_STATES; ++state) {
+            min = Math.min(min, load(state));
+        }
+        if (min == 0) return;  // state 0 is still unreachable, right after start()
+
+        for (int state = 0; state < NUM_STATES; ++state) {
+            store(state, load(state) - min);
+        }
+        offset += min;
+        countRenormalization();
+    }
+
+    /*
+     * The butterflies of AcsEngine, one kernel per metric type.
+     */
+    private void stepShort(int[] bm)
+    {
+        short[] m  = shortMetric;
+        short[] nm = nextShortMetric;
+        for (int g = 0; g < HALF_STATES; g += GROUP) {
+            long lower = 0;
+            long upper = 0;
+            for (int j = g, b = 4 * g; j < g + GROUP; ++j, b += 4) {
+                int m0 = m[2 * j];
+                int m1 = m[2 * j + 1];
+
+                int a0 = m0 + bm[b];
+                int a1 = m1 + bm[b + 1];
+                int d  = a1 - a0 - 1 >>> 31;
+                nm[j]  = (short) (a0 + (a1 - a0 & -d));
+                lower |= (long) d << j;
+
+                int c0 = m0 + bm[b + 2];
+                int c1 = m1 + bm[b + 3];
+                d = c1 - c0 - 1 >>> 31;
+                nm[j + HALF_STATES] = (short) (c0 + (c1 - c0 & -d));
+                upper |= (long) d << j + HALF_STATES;  // shift is taken mod 64
+            }
+            decisions[g >>> 6]               |= lower;
+            decisions[g + HALF_STATES >>> 6] |= upper;
+        }
+    }
+
+    private void stepByte(int[] bm)
+    {
+        byte[] m  = byteMetric;
+        byte[] nm = nextByteMetric;
+        for (int g = 0; g < HALF_STATES; g += GROUP) {
+            long lower = 0;
+            long upper = 0;
+            for (int j = g, b = 4 * g; j < g + GROUP; ++j, b += 4) {
+                int m0 = m[2 * j];
+                int m1 = m[2 * j + 1];
+
+                int a0 = m0 + bm[b];
+                int a1 = m1 + bm[b + 1];
+                int d  = a1 - a0 - 1 >>> 31;
+                nm[j]  = (byte) (a0 + (a1 - a0 & -d));
+                lower |= (long) d << j;
+
+                int c0 = m0 + bm[b + 2];
+                int c1 = m1 + bm[b + 3];
+                d = c1 - c0 - 1 >>> 31;
+                nm[j + HALF_STATES] = (byte) (c0 + (c1 - c0 & -d));
+                upper |= (long) d << j + HALF_STATES;  // shift is taken mod 64
+            }
+            decisions[g >>> 6]               |= lower;
+            decisions[g + HALF_STATES >>> 6] |= upper;
+        }
+    }
+}
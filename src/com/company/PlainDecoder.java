@@ -1,7 +1,6 @@
 package com.company;
 
 import java.awt.image.BufferedImage;
-import java.util.LinkedList;
 
 public class PlainDecoder implements IPlainDecoder
 {
@@ -11,22 +10,20 @@ public class PlainDecoder implements IPlainDecoder
         assert equals(asciiBytes != null);
         assert equals(asciiBytes.length == width * height * ViterbiBMP.BITS_PER_PIXEL);
 
-        BufferedImage outImg = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-
         // Take 24 ones and zeroes and make one rgb pixel:
-        LinkedList<Integer> rgbList = new LinkedList<>();
-        for (int i = 0; i < asciiBytes.length; i += ViterbiBMP.BITS_PER_PIXEL) {
-            int tempRGB = Integer.parseInt(new String(asciiBytes, i, ViterbiBMP.BITS_PER_PIXEL), 2);
-            rgbList.add(tempRGB);
-        }
-        assert rgbList.size() == width * height;
+        BitBuffer bits = new BitBuffer(asciiBytes.length);
+        SymbolUnpacker.packAscii(asciiBytes, 0, asciiBytes.length, bits);
+        return decodeBMP(bits, width, height);
+    }
 
-        for (int h = 0; h < height; ++h){
-            for (int w = 0; w < width; ++w){
-                outImg.setRGB(w, h, rgbList.poll());
-            }
-        }
+    @Override
+    public BufferedImage decodeBMP(IBitSource bits, int width, int height)
+    {
+        assert bits.length() == width * height * ViterbiBMP.BITS_PER_PIXEL;
 
-        return outImg;
+        // Take 24 bits and make one rgb pixel, straight into the raster:
+        ImageSink sink = new ImageSink(width, height);
+        sink.append(bits);
+        return sink.image();
     }
 }
@@ -20,4 +20,15 @@ public class PlainEncoder implements IPlainEncoder
 
         return sb.toString();
     }
+
+    @Override
+    public void encode(BufferedImage inImg, BitBuffer out) throws NullPointerException
+    {
+        out.ensureCapacity(out.length() + inImg.getWidth() * inImg.getHeight() * ViterbiBMP.BITS_PER_PIXEL);
+        for (int h = 0; h < inImg.getHeight(); ++h){
+            for (int w = 0; w < inImg.getWidth(); ++w){
+                out.appendBits(inImg.getRGB(w, h), ViterbiBMP.BITS_PER_PIXEL);  // alpha falls off the top
+            }
+        }
+    }
 }
@@ -0,0 +1,313 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Puncturing of a rate 1/n code to a higher rate: of every period of code-text bits only those marked '1' are sent.
+ * The depuncturer puts the dropped bits back as 0s, and a decoder given the pattern (IDecoder.setPuncturing())
+ * treats them as erasures that add nothing to any branch metric, so the trellis and the ACS kernel stay the same.
+ *
+ * Patterns are written in transmission order, symbol after symbol, e.g. "1110" for rate 2/3 of a rate 1/2 code:
+ * both bits of the first symbol and the first bit of the second one. Every symbol must keep at least one bit.
+ * A period may have up to MAX_PERIOD_BITS bits.
+ *
+ * Both directions work on packed bits a period at a time: the period is read as one long and cut into bytes,
+ * whose kept bits are gathered (or spread back) with one lookup each in COMPRESS (EXPAND).
+ * Input must start at the beginning of a period. Only the last call of a stream may end inside one;
+ * puncturer() and depuncturer() take a stream in pieces of any size.
+ */
+public class PuncturePattern
+{
+    public static final int MAX_PERIOD_BITS = 56;
+
+    /*
+     * Patterns forRate() knows, by code. Each one is, of all patterns of its rate and period,
+     * a non-catastrophic one with the largest free distance and the fewest paths at it.
+     * The generators are in the order the code's outputs are sent.
+     */
+    private static final String[][] KNOWN_PATTERNS = {
+        // code             2/3       3/4
+        {"9:557,663,711",  "011100", "011010001"},  // IS-95 rate 1/3, free distance 7 and 6
+        {"9:753,561",      "1101",   "110101"},     // IS-95 rate 1/2, 7 and 6
+        {"7:171,133",      "1101",   "110110"},     // 802.11 and DVB, 6 and 5
+    };
+
+    private static final byte[] COMPRESS = new byte[256 * 256];  // [mask << 8 | value] bits of value under mask, right aligned
+    private static final byte[] EXPAND   = new byte[256 * 256];  // [mask << 8 | bits] right aligned bits spread over the 1s of mask
+
+    static {
+        for (int mask = 0; mask < 256; ++mask) {
+            for (int value = 0; value < 256; ++value) {
+                int compressed = 0;
+                int expanded = 0;
+                int next = Integer.bitCount(mask);  // bits of value still to spread, the first one most significant
+                for (int i = 7; i >= 0; --i) {
+                    if ((mask >>> i & 0x01) == 0) continue;
+                    compressed = compressed << 1 | value >>> i & 0x01;
+                    expanded |= (value >>> --next & 0x01) << i;
+                }
+                COMPRESS[mask << 8 | value] = (byte) compressed;
+                EXPAND[mask << 8 | value] = (byte) expanded;
+            }
+        }
+    }
+
+    private final int[]  erasures;     // [symbol of the period] erased bits of the symbol, in the symbol's bit order
+    private final int    keptBits;     // bits sent per period
+    private final int[]  keptInByte;   // [byte of the period] bits kept in it
+    private final int[]  maskBytes;    // [byte of the period] the pattern, left aligned
+    private final int    outputLength;
+    private final long   pattern;      // periodBits bits, the first one most significant
+    private final int    periodBits;
+    private final int    periodBytes;
+
+    /**
+     * @param outputLength n of the rate 1/n code being punctured
+     * @param pattern '1' for every code-text bit sent, '0' for every bit dropped
+     */
+    public PuncturePattern(int outputLength, String pattern) throws InvalidParameterException
+    {
+        int length = pattern.length();
+        if (outputLength < 1 || length == 0 || length % outputLength != 0 || length > MAX_PERIOD_BITS)
+            throw new InvalidParameterException("Puncture pattern must be whole symbols of " + outputLength + " bits, at most " +
+                                                MAX_PERIOD_BITS + " bits long!");
+        long bits = 0;
+        for (int i = 0; i < length; ++i) {
+            char c = pattern.charAt(i);
+            if (c != '0' && c != '1') throw new InvalidParameterException("Puncture pattern must hold only '0' and '1'!");
+            bits = bits << 1 | c - '0';
+        }
+
+        this.outputLength = outputLength;
+        this.pattern = bits;
+        periodBits = length;
+        keptBits = Long.bitCount(bits);
+
+        int symbolMask = (1 << outputLength) - 1;
+        erasures = new int[length / outputLength];
+        for (int s = 0; s < erasures.length; ++s) {
+            erasures[s] = ~(int) (bits >>> length - (s + 1) * outputLength) & symbolMask;
+            if (erasures[s] == symbolMask)
+                throw new InvalidParameterException("Puncture pattern drops all of symbol " + s + "!");
+        }
+
+        periodBytes = (length + 7) / 8;
+        maskBytes = new int[periodBytes];
+        keptInByte = new int[periodBytes];
+        long aligned = bits << 8 * periodBytes - length;
+        for (int j = 0; j < periodBytes; ++j) {
+            maskBytes[j] = (int) (aligned >>> 8 * (periodBytes - 1 - j)) & 0xff;
+            keptInByte[j] = Integer.bitCount(maskBytes[j]);
+        }
+    }
+
+    /**
+     * Pattern of the given rate for the encoder's code, from KNOWN_PATTERNS. A pattern only suits the code it was chosen for:
+     * on another code of the same rate it may lose most of the free distance or even make the code catastrophic,
+     * so one decoding error never ends. Other codes need their pattern given to the constructor.
+     *
+     * @param rate "2/3" or "3/4"
+     * @throws InvalidParameterException if there is no known pattern of the rate for the code
+     */
+    public static PuncturePattern forRate(IEncoder encoder, String rate) throws InvalidParameterException
+    {
+        int column;
+        switch (rate) {
+            case "2/3":
+                column = 1;
+                break;
+            case "3/4":
+                column = 2;
+                break;
+            default:
+                throw new InvalidParameterException("Known puncturing rates are 2/3 and 3/4, not " + rate + "!");
+        }
+
+        String code = codeName(encoder);
+        for (String[] known : KNOWN_PATTERNS) {
+            if (known[0].equals(code)) return new PuncturePattern(encoder.outputLength(), known[column]);
+        }
+        throw new InvalidParameterException("No known puncture pattern for code " + code + ", give one as a string instead!");
+    }
+
+    /*
+     * K and octal generators like ConvolutionalEncoder.forName() takes them, e.g. "7:171,133".
+     */
+    private static String codeName(IEncoder encoder)
+    {
+        StringBuilder code = new StringBuilder().append(encoder.delay() + 1).append(':');
+        int[] generators = encoder.generators();
+        for (int g = 0; g < generators.length; ++g) {
+            if (g > 0) code.append(',');
+            code.append(Integer.toOctalString(generators[g]));
+        }
+        return code.toString();
+    }
+
+    /**
+     * Undo pack().
+     */
+    public static PuncturePattern unpack(int outputLength, long packed) throws InvalidParameterException
+    {
+        int length = (int) (packed >>> MAX_PERIOD_BITS);
+        StringBuilder pattern = new StringBuilder(length);
+        for (int i = length - 1; i >= 0; --i) {
+            pattern.append((char) ('0' + (packed >>> i & 0x01)));
+        }
+        return new PuncturePattern(outputLength, pattern.toString());
+    }
+
+    /**
+     * @return The pattern in one long: its length in the top byte, its bits right aligned below
+     */
+    public long pack() { return (long) periodBits << MAX_PERIOD_BITS | pattern; }
+
+    /**
+     * @param symbolIndex Index of the symbol since the start of the stream
+     * @return Erased bits of the symbol, in the symbol's bit order
+     */
+    public int erasures(long symbolIndex) { return erasures[(int) (symbolIndex % erasures.length)]; }
+
+    /**
+     * @throws InvalidParameterException if the pattern is not for symbols of encoder's output length
+     */
+    public void checkFits(IEncoder encoder) throws InvalidParameterException
+    {
+        if (outputLength != encoder.outputLength())
+            throw new InvalidParameterException("Puncture pattern of " + outputLength + " bit symbols does not fit a code of " +
+                                                encoder.outputLength() + " bit symbols!");
+    }
+
+    public int keptBits() { return keptBits; }
+
+    public int outputLength() { return outputLength; }
+
+    public int periodBits() { return periodBits; }
+
+    /**
+     * @return Bits puncture() keeps of count code-text bits
+     */
+    public long puncturedLength(long count)
+    {
+        long kept = count / periodBits * keptBits;
+        for (int q = 0; q < count % periodBits; ++q) {
+            if (kept(q)) ++kept;
+        }
+        return kept;
+    }
+
+    /**
+     * @return Plain-text bits per code-text bit sent, e.g. 0.75 for rate 3/4
+     */
+    public double rate() { return (double) erasures.length / keptBits; }
+
+    /**
+     * Append the kept ones of count code-text bits of in, starting at from, to out.
+     */
+    public void puncture(IBitSource in, int from, int count, BitBuffer out)
+    {
+        int end = from + count;
+        int shift = 8 * periodBytes - periodBits;
+        out.ensureCapacity(out.length() + (int) ((long) count * keptBits / periodBits) + keptBits);
+        for (; from + periodBits <= end; from += periodBits) {
+            long period = in.getBits(from, periodBits) << shift;
+            long kept = 0;
+            for (int j = 0; j < periodBytes; ++j) {
+                int value = (int) (period >>> 8 * (periodBytes - 1 - j)) & 0xff;
+                kept = kept << keptInByte[j] | COMPRESS[maskBytes[j] << 8 | value] & 0xff;
+            }
+            out.appendBits(kept, keptBits);
+        }
+
+        // a stream ending inside a period:
+        for (int q = 0; from + q < end; ++q) {
+            if (kept(q)) out.append(in.get(from + q));
+        }
+    }
+
+    /**
+     * Append count punctured bits of in, starting at from, to out with 0s put back in place of the dropped bits.
+     * If the stream ends inside a period, the last symbol it reaches is completed with 0s.
+     */
+    public void depuncture(IBitSource in, int from, int count, BitBuffer out)
+    {
+        int end = from + count;
+        int shift = 8 * periodBytes - periodBits;
+        out.ensureCapacity(out.length() + (int) ((long) count * periodBits / keptBits) + periodBits);
+        for (; from + keptBits <= end; from += keptBits) {
+            long kept = in.getBits(from, keptBits);
+            int left = keptBits;
+            long period = 0;
+            for (int j = 0; j < periodBytes; ++j) {
+                left -= keptInByte[j];
+                int bits = (int) (kept >>> left) & (1 << keptInByte[j]) - 1;
+                period = period << 8 | EXPAND[maskBytes[j] << 8 | bits] & 0xff;
+            }
+            out.appendBits(period >>> shift, periodBits);
+        }
+
+        // a stream ending inside a period:
+        int taken = 0;
+        int left = end - from;
+        for (int q = 0; q < periodBits && !(taken == left && q % outputLength == 0); ++q) {
+            out.append(kept(q) && taken < left ? in.get(from + taken++) : 0);
+        }
+    }
+
+    /**
+     * @return New stage puncturing one stream
+     */
+    public IBitStage puncturer() { return new Stage(false); }
+
+    /**
+     * @return New stage depuncturing one stream
+     */
+    public IBitStage depuncturer() { return new Stage(true); }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder s = new StringBuilder(periodBits);
+        for (int q = 0; q < periodBits; ++q) {
+            s.append(kept(q) ? '1' : '0');
+        }
+        return s.toString();
+    }
+
+    private boolean kept(int q)
+    {
+        return (pattern >>> periodBits - 1 - q & 0x01) != 0;
+    }
+
+    /*
+     * Works on whole periods, the last bits of a stream are handled as puncture() and depuncture() do.
+     */
+    private final class Stage extends BlockBitStage
+    {
+        private final boolean inverse;
+
+        Stage(boolean inverse)
+        {
+            super(inverse ? keptBits : periodBits);
+            this.inverse = inverse;
+        }
+
+        @Override
+        protected void processBlocks(IBitSource in, int from, int blocks, BitBuffer out)
+        {
+            if (inverse)
+                depuncture(in, from, blocks * keptBits, out);
+            else
+                puncture(in, from, blocks * periodBits, out);
+        }
+
+        @Override
+        protected void endBlocks(IBitSource rest, BitBuffer out)
+        {
+            if (inverse)
+                depuncture(rest, 0, rest.length(), out);
+            else
+                puncture(rest, 0, rest.length(), out);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+
+/**
+ * Viterbi Hard Decision decoder with a sliding traceback window.
+ *
+ * Unlike ViterbiDecoder, which cuts the signal into independent blocks and decides the last bits
+ * of every block with no look-ahead, the paths are extended without ever restarting.
+ * Every emitLength steps the best path is traced back over tracebackLength + emitLength steps
+ * and only the oldest emitLength bits are emitted. Every bit is therefore decided with at least
+ * tracebackLength steps of look-ahead, and the cost per bit stays constant.
+ *
+ * With setAdaptiveDepth() the traceback length follows the channel: the best path metric gained since the previous
+ * traceback counts the received bits the decoded path disagrees with, and the margin of the best state over
+ * the second best tells how clearly it leads. While blocks come in clean and clearly led, the traceback shrinks
+ * a step at a time towards the minimum; the first block with errors brings it back to the maximum.
+ * Both thresholds can be raised: a block then only counts as noisy once the error rate its metric implies
+ * exceeds a given rate, and only counts as clearly led once the margin reaches a given size.
+ * Survivors are kept for the maximum throughout, so adapting never allocates.
+ */
+public class SlidingViterbiDecoder extends SymbolStreamDecoder
+{
+    private static final int RATE_BOUND   = 10000;  // error rates are given per RATE_BOUND bits, as to INoiseGenerator
+    private static final int SHRINK_STEPS = 8;   // clean blocks from the maximum traceback length to the minimum
+    private static final int UNREACHABLE  = Integer.MAX_VALUE / 2;
+
+    private       AcsEngine          acs;
+    private       boolean            adaptive;
+    private       int                blockSteps;  // steps made since the previous traceback
+    private       int                emitLength;
+    private       boolean            emitLengthSet;
+    private       int                growErrorRate;
+    private       int                maxTracebackLength;
+    private       DecoderMetrics     metrics;
+    private       int                minTracebackLength;
+    private       int                pending;  // steps made but not emitted yet
+    private       int                shrinkMargin;
+    private       int                tracebackLength;
+    private       long               tracebackSteps;  // steps walked by tracebacks since beginStream()
+    private       long               tracebacks;      // since beginStream()
+    private final StateTransitionLUT transitions;
+
+    public SlidingViterbiDecoder(IEncoder e)
+    {
+        super(e);
+        transitions = StateTransitionLUT.of(encoder);
+        acs = AcsEngine.create(encoder, transitions);
+        acs.setPackedSurvivors(true);
+    }
+
+    /**
+     * Sets the traceback length, i.e. the minimum look-ahead of every decided bit.
+     * Unless set explicitly, the emit length follows it. Turns adaptive depth off.
+     *
+     * @param d Desired traceback length
+     */
+    @Override
+    public void setDecodingDepth(int d)
+    {
+        if (d < encoder.delay()) {
+            System.out.println("[ SlidingViterbiDecoder ] You requested decodingDepth " + d + "." +
+                               " Paths need at least " + encoder.delay() + " steps to merge." +
+                               " We now set the decodingDepth to " + encoder.delay() + ".");
+            d = encoder.delay();
+        }
+        adaptive = false;
+        minTracebackLength = d;
+        maxTracebackLength = d;
+        tracebackLength = d;
+        if (!emitLengthSet) emitLength = d;
+        acs.setDepth(maxTracebackLength + emitLength);
+    }
+
+    /**
+     * Let the traceback length follow the channel between min and max, see the class comment.
+     * Every stream starts at max. Unless set explicitly, the emit length follows min.
+     * Any error in a block brings the traceback back to max, any margin lets it shrink.
+     *
+     * @param min Traceback length on a clean channel, at least the encoder's delay
+     * @param max Traceback length on a noisy channel
+     */
+    public void setAdaptiveDepth(int min, int max) throws InvalidParameterException
+    {
+        setAdaptiveDepth(min, max, 0, 1);
+    }
+
+    /**
+     * Let the traceback length follow the channel between min and max, see the class comment.
+     * Every stream starts at max. Unless set explicitly, the emit length follows min.
+     *
+     * @param min Traceback length on a clean channel, at least the encoder's delay
+     * @param max Traceback length on a noisy channel
+     * @param growErrorRate Error rate per 10000 received bits a block's metric must exceed to go back to max
+     * @param shrinkMargin Margin of the best state over the second best a block needs to shrink the traceback
+     */
+    public void setAdaptiveDepth(int min, int max, int growErrorRate, int shrinkMargin) throws InvalidParameterException
+    {
+        if (min < encoder.delay()) throw new InvalidParameterException("Minimum traceback length must be at least " + encoder.delay() + "!");
+        if (max < min) throw new InvalidParameterException("Maximum traceback length must not be below the minimum!");
+        if (growErrorRate < 0 || growErrorRate > RATE_BOUND) throw new InvalidParameterException("Error rate must be between 0 and " + RATE_BOUND + "!");
+        if (shrinkMargin < 1) throw new InvalidParameterException("Margin to shrink must be at least 1!");
+        adaptive = true;
+        this.growErrorRate = growErrorRate;
+        this.shrinkMargin = shrinkMargin;
+        minTracebackLength = min;
+        maxTracebackLength = max;
+        tracebackLength = max;
+        if (!emitLengthSet) emitLength = min;
+        acs.setDepth(maxTracebackLength + emitLength);
+    }
+
+    /**
+     * Sets how many bits are emitted per traceback.
+     * Shorter means more tracebacks per bit, longer means more survivor memory.
+     *
+     * @param l Bits emitted per traceback
+     */
+    public void setEmitLength(int l)
+    {
+        if (l < 1) throw new InvalidParameterException("Emit length must be at least 1!");
+        emitLength = l;
+        emitLengthSet = true;
+        acs.setDepth(maxTracebackLength + emitLength);
+    }
+
+    /**
+     * @return Traceback length the next traceback uses
+     */
+    public int tracebackLength() { return tracebackLength; }
+
+    /**
+     * @return Mean steps walked per traceback since the stream began, the traceback length plus the bits emitted
+     */
+    public double meanTracebackSteps() { return tracebacks == 0 ? 0 : (double) tracebackSteps / tracebacks; }
+
+    @Override
+    public void setMetricBits(int bits) throws InvalidParameterException
+    {
+        AcsEngine narrow = AcsEngine.create(encoder, transitions, bits);
+        narrow.setPackedSurvivors(true);
+        narrow.setDepth(acs.depth());
+        acs = narrow;
+    }
+
+    @Override
+    public int metricBits() { return acs.metricBits(); }
+
+    @Override
+    public long renormalizations() { return acs.renormalizations(); }
+
+    /**
+     * Record every traceback as a block: the path metric gained since the previous one and the bits it emitted.
+     */
+    @Override
+    public void setMetrics(DecoderMetrics m)
+    {
+        metrics = m;
+    }
+
+    @Override
+    protected void beginSymbols()
+    {
+        acs.start(0, UNREACHABLE);
+        blockSteps = 0;
+        pending = 0;
+        tracebackLength = maxTracebackLength;
+        tracebackSteps = 0;
+        tracebacks = 0;
+    }
+
+    @Override
+    protected void decodeSymbol(int symbol, BitBuffer out)
+    {
+        acs.step(symbol);
+        ++blockSteps;
+        if (++pending >= tracebackLength + emitLength) {
+            // emit all but the look-ahead, more than emitLength bits right after the traceback shrank:
+            int best = acs.bestState();
+            int count = pending - tracebackLength;
+            acs.traceback(best, tracebackLength, count, out);
+            tracebackSteps += pending;
+            ++tracebacks;
+
+            int blockMetric = acs.metric(best);  // metrics were normalized to the best path at the previous traceback
+            if (metrics != null) metrics.recordBlock(blockMetric, count);
+            if (adaptive) adapt(best, blockMetric);
+            acs.normalize(blockMetric);
+            pending -= count;
+            blockSteps = 0;
+        }
+    }
+
+    @Override
+    protected void endSymbols(BitBuffer out)
+    {
+        // the stream is over, no more look-ahead is coming:
+        acs.traceback(acs.bestState(), 0, pending, out);
+        pending = 0;
+    }
+
+    /*
+     * Shrink the traceback a step after a clean block with a clear leader, go back to the maximum after errors.
+     * The block metric counts the errors in the blockSteps symbols received since the previous traceback.
+     * The margin takes another pass over all states, so it is only looked at while there is room to shrink.
+     */
+    private void adapt(int best, int blockMetric)
+    {
+        long receivedBits = (long) blockSteps * encoder.outputLength();
+        if ((long) blockMetric * RATE_BOUND > (long) growErrorRate * receivedBits) {
+            tracebackLength = maxTracebackLength;
+        } else if (tracebackLength > minTracebackLength && acs.margin(best) >= shrinkMargin) {
+            int step = Math.max(1, (maxTracebackLength - minTracebackLength) / SHRINK_STEPS);
+            tracebackLength = Math.max(minTracebackLength, tracebackLength - step);
+        }
+    }
+}
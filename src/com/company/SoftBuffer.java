@@ -0,0 +1,122 @@
+package com.company;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+
+/**
+ * Growable vector of quantized soft channel values, one byte per channel bit.
+ * With q quantization bits values run from 0 (surely a 0 was sent) to 2^q - 1 (surely a 1 was sent),
+ * so the upper half of the range are the values a hard decision reads as 1.
+ */
+public class SoftBuffer
+{
+    private static final int ASCII_CHUNK           = 8192;  // bytes per read/write when streaming ASCII form
+    static final         int MAX_QUANTIZATION_BITS = 4;     // so a value is one hex digit in ASCII form
+
+    private final int    quantizationBits;
+    private       int    length;
+    private       byte[] values;
+
+    /**
+     * @param q Quantization bits per value, 1 to 4. 1 is a hard decision.
+     */
+    public SoftBuffer(int q)
+    {
+        this(q, 64);
+    }
+
+    /**
+     * @param q Quantization bits per value, 1 to 4. 1 is a hard decision.
+     * @param capacity Expected number of values. The buffer grows if more are appended.
+     */
+    public SoftBuffer(int q, int capacity)
+    {
+        if (q < 1 || q > MAX_QUANTIZATION_BITS) throw new InvalidParameterException("Quantization bits must be between 1 and " + MAX_QUANTIZATION_BITS + "!");
+        quantizationBits = q;
+        values = new byte[Math.max(1, capacity)];
+    }
+
+    /**
+     * Read hex digit soft values written by writeAscii() until the stream ends.
+     * Any other characters (EOL) are skipped.
+     */
+    public static SoftBuffer readAscii(InputStream in, int q) throws IOException
+    {
+        SoftBuffer soft = new SoftBuffer(q, ASCII_CHUNK);
+        byte[] chunk = new byte[ASCII_CHUNK];
+        int n;
+        while ((n = in.read(chunk)) > 0) {
+            for (int i = 0; i < n; ++i) {
+                int v = Character.digit(chunk[i], 16);
+                if (v >= 0) soft.append(v);
+            }
+        }
+        return soft;
+    }
+
+    public int quantizationBits() { return quantizationBits; }
+
+    /**
+     * @return Value of a sure 1
+     */
+    public int maxValue() { return (1 << quantizationBits) - 1; }
+
+    public int length() { return length; }
+
+    public int get(int index)
+    {
+        return values[index] & 0xff;
+    }
+
+    public void append(int value)
+    {
+        ensureCapacity(length + 1);
+        values[length++] = (byte) value;
+    }
+
+    public void truncate(int newLength)
+    {
+        if (newLength < length) length = newLength;
+    }
+
+    public void clear()
+    {
+        length = 0;
+    }
+
+    public void ensureCapacity(int n)
+    {
+        if (n > values.length)
+            values = Arrays.copyOf(values, Math.max(n, values.length * 2));
+    }
+
+    /**
+     * Append the hard decision of every value to out.
+     */
+    public void hardDecisions(BitBuffer out)
+    {
+        int half = 1 << quantizationBits - 1;
+        out.ensureCapacity(out.length() + length);
+        for (int i = 0; i < length; ++i) {
+            out.append(get(i) >= half ? 1 : 0);
+        }
+    }
+
+    /**
+     * Write the values as one hex digit each, in fixed size pieces.
+     */
+    public void writeAscii(OutputStream out) throws IOException
+    {
+        byte[] chunk = new byte[ASCII_CHUNK];
+        for (int i = 0; i < length; i += ASCII_CHUNK) {
+            int n = Math.min(ASCII_CHUNK, length - i);
+            for (int j = 0; j < n; ++j) {
+                chunk[j] = (byte) Character.forDigit(get(i + j), 16);
+            }
+            out.write(chunk, 0, n);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+
+import static com.company.ViterbiBMP.BITS_PER_PIXEL;
+
+/**
+ * Viterbi Soft Decision decoder with a sliding traceback window like SlidingViterbiDecoder.
+ *
+ * The branch metric is the distance of the received soft values to the branch output:
+ * a soft value v counts v towards a 0 and (2^q - 1) - v towards a 1,
+ * which for q = 1 is exactly the Hamming distance of the hard decoder.
+ * The metric of each of the 2^outputLength() codewords is worked out once per symbol
+ * and the ACS engine spreads it over the trellis branches, so metrics stay integers.
+ */
+public class SoftViterbiDecoder implements ISoftDecoder
+{
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 2;
+
+    private       AcsEngine          acs;
+    private final int[]              codewordMetrics;
+    private final IEncoder           encoder;
+    private       int                tracebackLength;
+    private final StateTransitionLUT transitions;
+
+    public SoftViterbiDecoder(IEncoder e)
+    {
+        encoder = e;
+        transitions = StateTransitionLUT.of(encoder);
+        acs = AcsEngine.create(encoder, transitions);
+        acs.setPackedSurvivors(true);
+        codewordMetrics = new int[1 << encoder.outputLength()];
+    }
+
+    /**
+     * Sets the traceback length, i.e. the minimum look-ahead of every decided bit.
+     *
+     * @param d Desired traceback length
+     */
+    @Override
+    public void setDecodingDepth(int d)
+    {
+        if (d < encoder.delay()) {
+            System.out.println("[ SoftViterbiDecoder ] You requested decodingDepth " + d + "." +
+                               " Paths need at least " + encoder.delay() + " steps to merge." +
+                               " We now set the decodingDepth to " + encoder.delay() + ".");
+            d = encoder.delay();
+        }
+        tracebackLength = d;
+        acs.setDepth(2 * tracebackLength);
+    }
+
+    /**
+     * 8 bits only take soft values of 1 quantization bit, decodeIS95() throws InvalidParameterException on wider ones.
+     */
+    @Override
+    public void setMetricBits(int bits) throws InvalidParameterException
+    {
+        AcsEngine narrow = AcsEngine.create(encoder, transitions, bits);
+        narrow.setPackedSurvivors(true);
+        narrow.setDepth(acs.depth());
+        acs = narrow;
+    }
+
+    @Override
+    public int metricBits() { return acs.metricBits(); }
+
+    @Override
+    public long renormalizations() { return acs.renormalizations(); }
+
+    @Override
+    public BitBuffer decodeIS95(SoftBuffer codeSoft, int numPixels)
+    {
+        BitBuffer plainBits = new BitBuffer(codeSoft.length() / encoder.outputLength());
+        decodeIS95(codeSoft, numPixels, plainBits);
+        return plainBits;
+    }
+
+    /**
+     * Every tracebackLength steps the best path is traced back over 2 × tracebackLength steps
+     * and the older half of it is emitted.
+     */
+    @Override
+    public void decodeIS95(SoftBuffer codeSoft, int numPixels, BitBuffer out)
+    {
+        int symbolLength = encoder.outputLength();
+        int numSymbols = codeSoft.length() / symbolLength;
+
+        out.clear();
+        out.ensureCapacity(numSymbols);
+        acs.start(0, UNREACHABLE);
+        int pending = 0;
+        for (int i = 0; i < numSymbols; ++i) {
+            codewordMetrics(codeSoft, i * symbolLength);
+            acs.stepSoft(codewordMetrics);
+            if (++pending == 2 * tracebackLength) {
+                int best = acs.bestState();
+                acs.traceback(best, tracebackLength, tracebackLength, out);
+                acs.normalize(acs.metric(best));
+                pending -= tracebackLength;
+            }
+        }
+        acs.traceback(acs.bestState(), 0, pending, out);
+
+        out.truncate(numPixels * BITS_PER_PIXEL);
+    }
+
+    /*
+     * Distance of the symbol starting at from to every codeword, first value against the most significant codeword bit.
+     */
+    private void codewordMetrics(SoftBuffer codeSoft, int from)
+    {
+        int symbolLength = encoder.outputLength();
+        int max = codeSoft.maxValue();
+        for (int c = 0; c < codewordMetrics.length; ++c) {
+            int m = 0;
+            for (int k = 0; k < symbolLength; ++k) {
+                int v = codeSoft.get(from + k);
+                m += (c >>> symbolLength - 1 - k & 0x01) == 0 ? v : max - v;
+            }
+            codewordMetrics[c] = m;
+        }
+    }
+}
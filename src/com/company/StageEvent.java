@@ -0,0 +1,32 @@
+package com.company;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of one piece of work of a pipeline stage, see PipelineMetrics.Stage.begin().
+ * Recorded whenever a JFR recording is running with the event enabled, e.g. -XX:StartFlightRecording.
+ */
+@Name("com.company.Stage")
+@Label("Pipeline Stage")
+@Category({"ViterbiBMP", "Pipeline"})
+@Description("Piece of code-text or plain-text passed through one stage of the pipeline")
+class StageEvent extends Event
+{
+    @Label("Stage")
+    String stage;
+
+    @Label("Bits In")
+    long bitsIn;
+
+    @Label("Bits Out")
+    long bitsOut;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+}
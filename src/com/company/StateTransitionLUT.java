@@ -1,22 +1,61 @@
 package com.company;
 
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Class to represent state machine transitions with it's output dependent on the input.
+ *
+ * Also holds the tables every ACS engine walks the trellis with: the encoder output on every branch
+ * and its Hamming distance to every symbol that can be received, in butterfly order.
+ * Instances never change after construction, so of() builds them once per code and all decoders share them.
+ *
+ * A received symbol may carry the erasure mask of its bits above them (see PuncturePattern): erased bits
+ * add nothing to the metric. Those rows are only built the first time a punctured symbol comes in.
  */
 public class StateTransitionLUT
 {
+    private static final ConcurrentHashMap<Code, StateTransitionLUT> SHARED = new ConcurrentHashMap<>();
+
     private final int       OUTPUT_IDX     = 0;
     private final int       NEXT_STATE_IDX = 1;
-    private final IEncoder  encoder;
+    private final int[]     branchCodewords;  // [4 * j + (input << 1 | predecessor & 1)] encoder output on branch in butterfly j
+    private final int[][]   branchMetrics;    // [received symbol][4 * j + (input << 1 | predecessor & 1)] metric of branch in butterfly j
+    private final int       delay;
+    private volatile int[][] erasedMetrics;   // [erased << outputLength | received symbol] like branchMetrics, built on first use
     private final int[][][] lut;  // [current state] [input bit] [output, next state]
     private final int       numStates;
 
+    /**
+     * @return The transitions of encoder's code, shared with every other encoder of the same code
+     */
+    public static StateTransitionLUT of(IEncoder encoder)
+    {
+        return SHARED.computeIfAbsent(new Code(encoder), c -> new StateTransitionLUT(encoder));
+    }
+
     public StateTransitionLUT(IEncoder enc)
     {
-        encoder = enc;
-        numStates = (int) Math.pow(2, encoder.delay());
+        delay = enc.delay();
+        numStates = 1 << delay;
         lut = new int[numStates][2][2];
-        fillLUT();
+        fillLUT(enc);
+
+        branchCodewords = new int[2 * numStates];
+        for (int j = 0; j < numStates / 2; ++j) {
+            for (int input = 0; input < 2; ++input) {
+                branchCodewords[4 * j + (input << 1)]     = output(2 * j, input);
+                branchCodewords[4 * j + (input << 1 | 1)] = output(2 * j + 1, input);
+            }
+        }
+
+        int numSymbols = 1 << enc.outputLength();
+        branchMetrics = new int[numSymbols][2 * numStates];
+        for (int received = 0; received < numSymbols; ++received) {
+            for (int b = 0; b < 2 * numStates; ++b) {
+                branchMetrics[received][b] = Integer.bitCount(received ^ branchCodewords[b]);
+            }
+        }
     }
 
     public int output(int previousState, int input)
@@ -29,25 +68,84 @@ public class StateTransitionLUT
         return lut[previousState][input][NEXT_STATE_IDX];
     }
 
-    private void fillLUT()
+    /**
+     * @return Encoder output on branch b: 4 * j + (input << 1 | predecessor & 1) in butterfly j
+     */
+    public int branchCodeword(int b)
+    {
+        return branchCodewords[b];
+    }
+
+    /**
+     * @param symbol Received symbol, with the erasure mask of its bits above them if it is punctured
+     * @return Hamming distance of every branch to the bits of symbol not erased, in branchCodeword() order.
+     * Shared, must not be modified.
+     */
+    int[] branchMetrics(int symbol)
+    {
+        if (symbol < branchMetrics.length) return branchMetrics[symbol];
+
+        int[][] erased = erasedMetrics;
+        if (erased == null) erased = buildErasedMetrics();
+        return erased[symbol];
+    }
+
+    private synchronized int[][] buildErasedMetrics()
+    {
+        if (erasedMetrics != null) return erasedMetrics;
+
+        int numSymbols = branchMetrics.length;
+        int[][] erased = new int[numSymbols * numSymbols][];
+        for (int symbol = 0; symbol < erased.length; ++symbol) {
+            int received = symbol & numSymbols - 1;
+            int counted = ~(symbol / numSymbols);
+            erased[symbol] = new int[2 * numStates];
+            for (int b = 0; b < 2 * numStates; ++b) {
+                erased[symbol][b] = Integer.bitCount((received ^ branchCodewords[b]) & counted & numSymbols - 1);
+            }
+        }
+        erasedMetrics = erased;
+        return erased;
+    }
+
+    private void fillLUT(IEncoder encoder)
     {
         int rgblsr;
-        int output;
         for (int currentState = 0; currentState < numStates; ++currentState) {
             for (int input = 0; input < 2; ++input) {
-                rgblsr = currentState | input << encoder.delay();  // input bit number 8 is 0 or 1
+                rgblsr = currentState | input << delay;  // input bit at the top of the register
                 lut[currentState][input][NEXT_STATE_IDX] = rgblsr >>> 1;
-                output = encoder.g0(rgblsr);
-                output <<= 1;
-                if (encoder.withOutputBits()) {
-                    output |= rgblsr & 0x01;
-                    output <<= 1;
-                }
-                output |= encoder.g1(rgblsr);
-                output <<= 1;
-                output |= encoder.g2(rgblsr);
-                lut[currentState][input][OUTPUT_IDX] = output;
+                lut[currentState][input][OUTPUT_IDX] = encoder.symbol(rgblsr);
             }
         }
     }
+
+    /*
+     * Identity of a code: two encoders with the same output for every register share their transitions.
+     */
+    private static final class Code
+    {
+        private final int   delay;
+        private final int   hash;
+        private final int[] symbols;
+
+        Code(IEncoder encoder)
+        {
+            delay = encoder.delay();
+            symbols = new int[2 << delay];
+            for (int register = 0; register < symbols.length; ++register) {
+                symbols[register] = encoder.symbol(register) << 4 | encoder.outputLength();
+            }
+            hash = Arrays.hashCode(symbols);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof Code && ((Code) o).delay == delay && Arrays.equals(((Code) o).symbols, symbols);
+        }
+
+        @Override
+        public int hashCode() { return hash; }
+    }
 }
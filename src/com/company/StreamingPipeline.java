@@ -0,0 +1,330 @@
+package com.company;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidParameterException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.company.ViterbiBMP.BITS_PER_PIXEL;
+
+/**
+ * IS-95 pipeline with every stage on its own thread:
+ * encoder → noise → writer → reader → Viterbi decoder → pixel sink.
+ * A puncturer and an interleaver may follow the encoder, their inverses then come before the decoder,
+ * each on a thread of its own.
+ * The writer and reader pass the code-text through a CodewordFile, in whole words as they fill up.
+ * Stages pass chunks of a few scanlines through bounded queues, so the signal in flight
+ * never exceeds queueCapacity chunks per queue whatever the image size.
+ * Only the input and the decoded image are held whole.
+ */
+public class StreamingPipeline
+{
+    private static final BitBuffer END_OF_STREAM = new BitBuffer(0);  // compared by reference
+    private static final int       END_OF_TEXT   = -1;
+    private static final int       WRITE_CHUNK   = 1 << 16;  // codeword file bytes per write
+
+    private final IEncoder        encoder;
+    private final INoiseGenerator noiseGenerator;
+    private final IDecoder        decoder;
+    private       IInterleaver    interleaving;
+    private       PipelineMetrics metrics;
+    private       PuncturePattern puncturing;
+    private       int             queueCapacity = 4;
+    private       int             rowsPerChunk  = 1;
+
+    public StreamingPipeline(IEncoder e, INoiseGenerator ng, IDecoder d)
+    {
+        encoder = e;
+        noiseGenerator = ng;  // may be null for a clean channel
+        decoder = d;
+    }
+
+    /**
+     * @param c Chunks each queue between two stages may hold before the producer blocks
+     */
+    public void setQueueCapacity(int c)
+    {
+        if (c < 1) throw new InvalidParameterException("Queue capacity must be at least 1!");
+        queueCapacity = c;
+    }
+
+    /**
+     * @param p Pattern to puncture the code-text with, null for none
+     */
+    public void setPuncturing(PuncturePattern p)
+    {
+        if (p != null) p.checkFits(encoder);
+        puncturing = p;
+    }
+
+    /**
+     * @param i Interleaver the code-text goes through after puncturing, null for none
+     */
+    public void setInterleaving(IInterleaver i)
+    {
+        interleaving = i;
+    }
+
+    /**
+     * Count every chunk of every stage into m, and the decoder's blocks into m.decoder().
+     * The puncturer and interleaver stages and their inverses are counted under their own names.
+     *
+     * @param m Metrics to add to, null for none
+     */
+    public void setMetrics(PipelineMetrics m)
+    {
+        metrics = m;
+        decoder.setMetrics(m == null ? null : m.decoder());
+    }
+
+    /**
+     * @param r Image rows encoded into one chunk
+     */
+    public void setRowsPerChunk(int r)
+    {
+        if (r < 1) throw new InvalidParameterException("Rows per chunk must be at least 1!");
+        rowsPerChunk = r;
+    }
+
+    /**
+     * Encode the image, pass it through the channel and the codeword file and decode it,
+     * all stages running concurrently.
+     *
+     * @param inBMPPath Path to original BMP image
+     * @param codePath Path to output codeword file
+     * @param outBMPPath Path to decoded BMP image
+     */
+    public void run(Path inBMPPath, Path codePath, Path outBMPPath) throws IOException
+    {
+        BufferedImage inImg = ImageIO.read(new File(String.valueOf(inBMPPath)));
+        ImageSink sink = new ImageSink(inImg.getWidth(), inImg.getHeight());
+
+        PuncturePattern pattern = puncturing;
+        IInterleaver interleaver = interleaving;
+        int numStages = 6 + (pattern == null ? 0 : 2) + (interleaver == null ? 0 : 2);
+
+        BlockingQueue<BitBuffer> encoded       = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<BitBuffer> punctured     = pattern == null ? encoded : new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<BitBuffer> interleaved   = interleaver == null ? punctured : new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<BitBuffer> noisy         = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Integer>   written       = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<BitBuffer> received      = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<BitBuffer> deinterleaved = interleaver == null ? received : new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<BitBuffer> depunctured   = pattern == null ? deinterleaved : new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<BitBuffer> decoded       = new ArrayBlockingQueue<>(queueCapacity);
+
+        ExecutorService executor = Executors.newFixedThreadPool(numStages);
+        try (FileChannel writeChannel = FileChannel.open(codePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                         StandardOpenOption.TRUNCATE_EXISTING);
+             FileChannel readChannel  = FileChannel.open(codePath, StandardOpenOption.READ)) {
+            CompletionService<Void> stages = new ExecutorCompletionService<>(executor);
+            stages.submit(() -> encodeStage(inImg, encoded));
+            if (pattern != null) stages.submit(() -> bitStage("puncture", pattern.puncturer(), encoded, punctured));
+            if (interleaver != null) stages.submit(() -> bitStage("interleave", interleaver.interleaver(), punctured, interleaved));
+            stages.submit(() -> noiseStage(interleaved, noisy));
+            stages.submit(() -> writeStage(noisy, writeChannel, pattern, interleaver, inImg, written));
+            stages.submit(() -> readStage(written, readChannel, received));
+            if (interleaver != null) stages.submit(() -> bitStage("deinterleave", interleaver.deinterleaver(), received, deinterleaved));
+            if (pattern != null) stages.submit(() -> bitStage("depuncture", pattern.depuncturer(), deinterleaved, depunctured));
+            stages.submit(() -> decodeStage(pattern, depunctured, decoded));
+            stages.submit(() -> sinkStage(decoded, sink));
+            awaitAll(stages, numStages);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        ImageIO.write(sink.image(), "bmp", new File(outBMPPath.toString()));
+    }
+
+    /*
+     * Wait for stages as they finish. The first failure stops the rest, which would otherwise block on their queues.
+     */
+    private void awaitAll(CompletionService<Void> stages, int count) throws IOException
+    {
+        try {
+            for (int i = 0; i < count; ++i) {
+                stages.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("[ StreamingPipeline ] Interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IllegalStateException("[ StreamingPipeline ] Stage failed", e.getCause());
+        }
+    }
+
+    private Void encodeStage(BufferedImage inImg, BlockingQueue<BitBuffer> out) throws InterruptedException
+    {
+        int chunkBits = inImg.getWidth() * rowsPerChunk * BITS_PER_PIXEL * encoder.outputLength();
+        for (int h = 0; h < inImg.getHeight(); h += rowsPerChunk) {
+            PipelineMetrics.Span span = PipelineMetrics.begin(metrics, "encode");
+            BitBuffer chunk = new BitBuffer(chunkBits);
+            int rows = Math.min(rowsPerChunk, inImg.getHeight() - h);
+            encoder.encode(inImg, h, h + rows, chunk);
+            PipelineMetrics.end(span, (long) rows * inImg.getWidth() * BITS_PER_PIXEL, chunk.length());
+            out.put(chunk);
+        }
+        out.put(END_OF_STREAM);
+        return null;
+    }
+
+    /*
+     * Pass the chunks through a puncturer, interleaver or their inverse. The stage keeps what it cannot give out yet,
+     * so chunks need not line up with its blocks.
+     */
+    private Void bitStage(String name, IBitStage stage, BlockingQueue<BitBuffer> in, BlockingQueue<BitBuffer> out)
+            throws InterruptedException
+    {
+        BitBuffer chunk;
+        while ((chunk = in.take()) != END_OF_STREAM) {
+            PipelineMetrics.Span span = PipelineMetrics.begin(metrics, name);
+            BitBuffer result = new BitBuffer(chunk.length());
+            stage.process(chunk, result);
+            PipelineMetrics.end(span, chunk.length(), result.length());
+            if (result.length() > 0) out.put(result);
+        }
+        PipelineMetrics.Span span = PipelineMetrics.begin(metrics, name);
+        BitBuffer result = new BitBuffer();
+        stage.end(result);
+        PipelineMetrics.end(span, 0, result.length());
+        if (result.length() > 0) out.put(result);
+        out.put(END_OF_STREAM);
+        return null;
+    }
+
+    private Void noiseStage(BlockingQueue<BitBuffer> in, BlockingQueue<BitBuffer> out) throws InterruptedException
+    {
+        BitBuffer chunk;
+        while ((chunk = in.take()) != END_OF_STREAM) {
+            if (noiseGenerator != null) {
+                PipelineMetrics.Span span = PipelineMetrics.begin(metrics, "channel");
+                long errors = noiseGenerator.errorCount();
+                noiseGenerator.noisifyChunk(chunk);
+                PipelineMetrics.end(span, chunk.length(), chunk.length());
+                if (metrics != null) metrics.recordChannel(chunk.length(), noiseGenerator.errorCount() - errors);
+            }
+            out.put(chunk);
+        }
+        out.put(END_OF_STREAM);
+        return null;
+    }
+
+    /*
+     * Append the bits of each chunk to the codeword file once they fill whole words and tell the reader how many bits
+     * became available. The last word is 0 padded, and the bit count in the header is filled in when the stream ends.
+     */
+    private Void writeStage(BlockingQueue<BitBuffer> in, FileChannel channel, PuncturePattern pattern, IInterleaver interleaver,
+                            BufferedImage inImg, BlockingQueue<Integer> out)
+            throws InterruptedException, IOException
+    {
+        CodewordFile.writeFully(channel, CodewordFile.header(encoder, pattern, interleaver, inImg.getWidth(), inImg.getHeight(), 0));
+        ByteBuffer bytes = ByteBuffer.allocateDirect(WRITE_CHUNK);
+        BitBuffer pending = new BitBuffer();  // bits not written yet, less than a word between chunks
+        BitBuffer rest = new BitBuffer();
+        long bitCount = 0;
+        BitBuffer chunk;
+        while ((chunk = in.take()) != END_OF_STREAM) {
+            pending.append(chunk);
+            int wholeBits = pending.length() & -Long.SIZE;
+            if (wholeBits == 0) continue;
+            PipelineMetrics.Span span = PipelineMetrics.begin(metrics, "write");
+            CodewordFile.writeWords(channel, pending.words(), wholeBits / Long.SIZE, bytes);
+            PipelineMetrics.end(span, wholeBits, wholeBits);
+            rest.clear();
+            rest.append(pending, wholeBits, pending.length() - wholeBits);
+            BitBuffer b = pending;
+            pending = rest;
+            rest = b;
+            bitCount += wholeBits;
+            out.put(wholeBits);
+        }
+        if (pending.length() > 0) {
+            CodewordFile.writeWords(channel, pending.words(), 1, bytes);
+            bitCount += pending.length();
+            out.put(pending.length());
+        }
+        channel.position(0);
+        CodewordFile.writeFully(channel, CodewordFile.header(encoder, pattern, interleaver, inImg.getWidth(), inImg.getHeight(),
+                                                             bitCount));
+        out.put(END_OF_TEXT);
+        return null;
+    }
+
+    private Void readStage(BlockingQueue<Integer> in, FileChannel channel, BlockingQueue<BitBuffer> out)
+            throws InterruptedException, IOException
+    {
+        channel.position(CodewordFile.HEADER_BYTES);
+        ByteBuffer bytes = ByteBuffer.allocate(0);
+        int count;
+        while ((count = in.take()) != END_OF_TEXT) {
+            PipelineMetrics.Span span = PipelineMetrics.begin(metrics, "read");
+            int numWords = BitBuffer.wordsFor(count);
+            if (bytes.capacity() < numWords * Long.BYTES) bytes = ByteBuffer.allocate(numWords * Long.BYTES);
+            bytes.clear().limit(numWords * Long.BYTES);
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes) < 0) throw new IOException("[ StreamingPipeline ] Codeword file ended early");
+            }
+
+            LongBuffer words = bytes.flip().asLongBuffer();
+            BitBuffer bits = new BitBuffer(numWords * Long.SIZE);
+            for (int i = 0; i < numWords; ++i) {
+                bits.appendBits(words.get(i), Long.SIZE);
+            }
+            bits.truncate(count);  // drop the padding of the last word
+            PipelineMetrics.end(span, count, count);
+            out.put(bits);
+        }
+        out.put(END_OF_STREAM);
+        return null;
+    }
+
+    private Void decodeStage(PuncturePattern pattern, BlockingQueue<BitBuffer> in, BlockingQueue<BitBuffer> out)
+            throws InterruptedException
+    {
+        decoder.setPuncturing(pattern);
+        decoder.beginStream();
+        BitBuffer chunk;
+        while ((chunk = in.take()) != END_OF_STREAM) {
+            PipelineMetrics.Span span = PipelineMetrics.begin(metrics, "decode");
+            BitBuffer plainBits = new BitBuffer(chunk.length() / encoder.outputLength());
+            decoder.decodeStream(chunk, plainBits);
+            PipelineMetrics.end(span, chunk.length(), plainBits.length());
+            if (plainBits.length() > 0) out.put(plainBits);
+        }
+        PipelineMetrics.Span span = PipelineMetrics.begin(metrics, "decode");
+        BitBuffer plainBits = new BitBuffer();
+        decoder.endStream(plainBits);
+        PipelineMetrics.end(span, 0, plainBits.length());
+        out.put(plainBits);
+        out.put(END_OF_STREAM);
+        return null;
+    }
+
+    /*
+     * Turn decoded bits into pixels in image order, straight into the raster of the decoded image.
+     */
+    private Void sinkStage(BlockingQueue<BitBuffer> in, ImageSink sink) throws InterruptedException
+    {
+        BitBuffer chunk;
+        while ((chunk = in.take()) != END_OF_STREAM) {
+            PipelineMetrics.Span span = PipelineMetrics.begin(metrics, "sink");
+            sink.append(chunk);
+            PipelineMetrics.end(span, chunk.length(), chunk.length());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,113 @@
+package com.company;
+
+import java.security.InvalidParameterException;
+
+import static com.company.ViterbiBMP.BITS_PER_PIXEL;
+
+/**
+ * Base of decoders that consume the code-text one symbol (outputLength() bits) at a time.
+ * Cuts stream pieces into symbols, carrying a symbol split between two pieces over to the next one.
+ * The whole-signal decodeIS95() methods are a single stream followed by trimming.
+ * With puncturing the erasure mask of every symbol is put above its bits before it is passed on.
+ */
+public abstract class SymbolStreamDecoder implements IDecoder
+{
+    protected final IEncoder        encoder;
+    private         PuncturePattern puncturing;
+    private   final BitBuffer       streamCarry = new BitBuffer();  // bits of a symbol split between stream pieces
+    private         long            streamSymbols;                  // symbols taken since beginStream()
+
+    protected SymbolStreamDecoder(IEncoder e)
+    {
+        encoder = e;
+    }
+
+    @Override
+    public byte[] decodeIS95(byte[] codeText, int numPixels)
+    {
+        return decodeIS95(BitBuffer.fromAscii(codeText), numPixels).toAscii();
+    }
+
+    @Override
+    public BitBuffer decodeIS95(IBitSource codeBits, int numPixels)
+    {
+        BitBuffer plainBits = new BitBuffer(codeBits.length() / encoder.outputLength());
+        decodeIS95(codeBits, numPixels, plainBits);
+        return plainBits;
+    }
+
+    @Override
+    public void decodeIS95(IBitSource codeBits, int numPixels, BitBuffer out)
+    {
+        out.clear();
+        beginStream();
+        decodeStream(codeBits, out);
+        endStream(out);
+        out.truncate(numPixels * BITS_PER_PIXEL);
+    }
+
+    @Override
+    public void beginStream()
+    {
+        streamCarry.clear();
+        streamSymbols = 0;
+        beginSymbols();
+    }
+
+    @Override
+    public void setPuncturing(PuncturePattern pattern) throws InvalidParameterException
+    {
+        if (pattern != null) pattern.checkFits(encoder);
+        puncturing = pattern;
+    }
+
+    @Override
+    public void decodeStream(IBitSource codeBits, BitBuffer out)
+    {
+        int symbolLength = encoder.outputLength();
+        int i = 0;
+
+        // complete the symbol left over from the previous piece:
+        if (streamCarry.length() > 0) {
+            i = Math.min(symbolLength - streamCarry.length(), codeBits.length());
+            streamCarry.append(codeBits, 0, i);
+            if (streamCarry.length() < symbolLength) return;
+            decodeSymbol((int) streamCarry.getBits(0, symbolLength) | erasures(streamSymbols++), out);
+            streamCarry.clear();
+        }
+
+        for (; i + symbolLength <= codeBits.length(); i += symbolLength) {
+            decodeSymbol((int) codeBits.getBits(i, symbolLength) | erasures(streamSymbols++), out);
+        }
+        streamCarry.append(codeBits, i, codeBits.length() - i);
+    }
+
+    @Override
+    public void endStream(BitBuffer out)
+    {
+        endSymbols(out);
+    }
+
+    /**
+     * @return Erasure mask of the symbol, shifted above its bits. 0 without puncturing.
+     */
+    protected int erasures(long symbolIndex)
+    {
+        return puncturing == null ? 0 : puncturing.erasures(symbolIndex) << encoder.outputLength();
+    }
+
+    /**
+     * Reset to the encoder's initial state for a new stream.
+     */
+    protected abstract void beginSymbols();
+
+    /**
+     * Take the next received symbol, appending any plain-text bits that became decided.
+     */
+    protected abstract void decodeSymbol(int symbol, BitBuffer out);
+
+    /**
+     * Append all plain-text bits not yet decided.
+     */
+    protected abstract void endSymbols(BitBuffer out);
+}
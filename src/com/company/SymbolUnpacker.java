@@ -0,0 +1,117 @@
+package com.company;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidParameterException;
+
+/**
+ * Bulk conversion of '0'/'1' code-text and packed bits into arrays of symbols, one int per symbol.
+ *
+ * ASCII is read 8 characters at a time with ByteBuffer.getLong and packed to 8 bits with a multiplication (SWAR),
+ * symbols are then cut out of up to 64 packed bits at a time with shifts. Nothing is allocated per symbol.
+ * Symbols have the bit received first most significant, like the symbols the decoders take.
+ */
+public final class SymbolUnpacker
+{
+    private static final long ASCII_ZEROS = 0x3030303030303030L;  // '0' in every byte
+    private static final long HIGH_BITS   = 0xfefefefefefefefeL;  // '0' and '1' differ in bit 0 only
+    private static final long LOW_BITS    = 0x0101010101010101L;
+    private static final long GATHER      = 0x0102040810204080L;  // moves bit 0 of byte 7 - k to bit 56 + 7 - k, without carries
+
+    private SymbolUnpacker() {}
+
+    /**
+     * @param chars 8 characters, the first in the most significant byte
+     * @return The characters as 8 bits, the first most significant, or -1 if one of them is neither '0' nor '1'
+     */
+    static int packAscii8(long chars)
+    {
+        long bits = chars ^ ASCII_ZEROS;
+        if ((bits & HIGH_BITS) != 0) return -1;
+        return (int) ((bits & LOW_BITS) * GATHER >>> 56);
+    }
+
+    /**
+     * Append '0'/'1' characters to out, 8 at a time.
+     *
+     * @throws InvalidParameterException if there are other characters
+     */
+    public static void packAscii(byte[] ascii, int from, int to, BitBuffer out) throws InvalidParameterException
+    {
+        ByteBuffer chars = ByteBuffer.wrap(ascii);
+        out.ensureCapacity(out.length() + to - from);
+
+        int i = from;
+        for (; i + Long.BYTES * Long.BYTES <= to; i += Long.BYTES * Long.BYTES) {
+            long word = 0;
+            for (int k = 0; k < Long.BYTES; ++k) {
+                int bits = packAscii8(chars.getLong(i + k * Long.BYTES));
+                if (bits < 0) throw notBinary(ascii, i + k * Long.BYTES);
+                word = word << Byte.SIZE | bits;
+            }
+            out.appendBits(word, Long.SIZE);
+        }
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            int bits = packAscii8(chars.getLong(i));
+            if (bits < 0) throw notBinary(ascii, i);
+            out.appendBits(bits, Byte.SIZE);
+        }
+        for (; i < to; ++i) {
+            int bit = ascii[i] - '0';
+            if ((bit & ~0x01) != 0) throw notBinary(ascii, i);
+            out.append(bit);
+        }
+    }
+
+    /**
+     * @param ascii Code-text of '0's and '1's only. Characters after the last whole symbol are ignored.
+     * @return One symbol of symbolLength bits per symbolLength characters
+     * @throws InvalidParameterException if there are other characters
+     */
+    public static int[] unpack(byte[] ascii, int symbolLength) throws InvalidParameterException
+    {
+        BitBuffer bits = new BitBuffer(ascii.length);
+        packAscii(ascii, 0, ascii.length - ascii.length % symbolLength, bits);
+        return unpack(bits, symbolLength);
+    }
+
+    /**
+     * @return All whole symbols of symbolLength bits in bits
+     */
+    public static int[] unpack(IBitSource bits, int symbolLength)
+    {
+        int[] symbols = new int[bits.length() / symbolLength];
+        unpack(bits, 0, symbolLength, symbols, 0, symbols.length);
+        return symbols;
+    }
+
+    /**
+     * Cut count symbols of symbolLength bits, 1 to 32, out of bits starting at bit from into out starting at outFrom.
+     */
+    public static void unpack(IBitSource bits, int from, int symbolLength, int[] out, int outFrom, int count)
+    {
+        if (symbolLength < 1 || symbolLength > Integer.SIZE)
+            throw new InvalidParameterException("Symbols must have 1 to " + Integer.SIZE + " bits!");
+
+        int  perRead = Long.SIZE / symbolLength;  // symbols in one 64 bit read
+        long mask    = (1L << symbolLength) - 1;
+        int  end     = outFrom + count;
+        int  s       = outFrom;
+        for (; s + perRead <= end; s += perRead, from += perRead * symbolLength) {
+            long w = bits.getBits(from, perRead * symbolLength);
+            for (int k = s + perRead - 1; k >= s; --k) {
+                out[k] = (int) (w & mask);
+                w >>>= symbolLength;
+            }
+        }
+        for (; s < end; ++s, from += symbolLength) {
+            out[s] = (int) bits.getBits(from, symbolLength);
+        }
+    }
+
+    private static InvalidParameterException notBinary(byte[] ascii, int from)
+    {
+        int i = from;
+        while (ascii[i] == '0' || ascii[i] == '1') ++i;
+        return new InvalidParameterException("Code-text must hold only '0' and '1', found '" + (char) ascii[i] + "' at " + i + "!");
+    }
+}
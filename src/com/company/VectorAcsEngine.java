@@ -0,0 +1,298 @@
+package com.company;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * Add-Compare-Select kernel on jdk.incubator.vector lanes, one butterfly per lane.
+ * Needs --add-modules jdk.incubator.vector to compile and run, AcsEngine.create() only loads it then.
+ *
+ * Path metrics are shorts so twice as many fit a register as ints. They are kept relative to an int offset:
+ * once state 0 gets above RENORMALIZE_AT the lowest metric is subtracted from all of them and added to the offset.
+ * All metrics of a trellis stay within DELAY × (largest branch metric) of each other, so that keeps them far from overflow,
+ * and metric() still returns exactly what the scalar engine does. Decisions, ties included, are the same too.
+ *
+ * The metrics are stored with even states first: state s at (s & 1) × HALF_STATES + s / 2,
+ * so both predecessors of a run of butterflies load as whole vectors.
+ * New metrics come out in state order and are split back into even and odd states with lane shuffles,
+ * two runs of butterflies at a time. A trellis of exactly LANES butterflies, like K = 7 on 512 bit vectors,
+ * has only one run, so there the two inputs of the run are paired instead.
+ */
+public class VectorAcsEngine extends AcsEngine
+{
+    private static final VectorSpecies<Short> SPECIES        = ShortVector.SPECIES_PREFERRED;
+    private static final int                  LANES          = SPECIES.length();
+    private static final short                MAX_UNREACHABLE = Short.MAX_VALUE / 2;
+    private static final int                  RENORMALIZE_AT = Short.MAX_VALUE / 4;
+
+    // even lanes to the lower half and odd lanes to the upper half, and the other way around:
+    private static final VectorShuffle<Short> EVENS_LOW   = VectorShuffle.fromOp(SPECIES, i -> i < LANES / 2 ? 2 * i : 2 * i + 1 - LANES);
+    private static final VectorShuffle<Short> ODDS_LOW    = VectorShuffle.fromOp(SPECIES, i -> i < LANES / 2 ? 2 * i + 1 : 2 * i - LANES);
+    private static final VectorShuffle<Short> SWAP_HALVES = VectorShuffle.fromOp(SPECIES, i -> (i + LANES / 2) % LANES);
+    private static final VectorMask<Short>    UPPER_LANES = VectorMask.fromLong(SPECIES, -1L << LANES / 2);
+    private static final ShortVector          PAIR_BITS   = pairBits();  // lanes 2k and 2k + 1: 1 << k
+
+    private final int       HALF_STATES;
+    private final int       NUM_STATES;
+    private final short[][] branchMetrics;  // [received symbol][(input << 1 | predecessor & 1) * HALF_STATES + j] metric of branch in butterfly j
+    private       short[][] erasedMetrics;  // [erased << outputLength | received symbol] like branchMetrics, rows built on first use
+    private final long[]    decisions;      // decisions of the current step, in AcsEngine's packed layout
+    private final short[]   codewordRow;    // metrics of the codewords in the first lanes, for stepSoft()
+    private final VectorShuffle<Short>[] softShuffles;  // [run of LANES branches] codeword of every branch, in branchMetrics order
+    private       short[]   metric;
+    private       short[]   nextMetric;
+    private       int       offset;         // added to every stored metric
+    private final short[]   softRow;
+
+    public VectorAcsEngine(IEncoder encoder, StateTransitionLUT transitions)
+    {
+        super(encoder, transitions);
+        NUM_STATES  = 1 << encoder.delay();
+        HALF_STATES = NUM_STATES >>> 1;
+        if (HALF_STATES % (2 * LANES) != 0 && HALF_STATES != LANES || LANES > Long.SIZE)
+            throw new UnsupportedOperationException("[ VectorAcsEngine ] " + HALF_STATES + " butterflies do not fill pairs of " + LANES + " lanes");
+
+        metric     = new short[NUM_STATES];
+        nextMetric = new short[NUM_STATES];
+        decisions  = new long[(NUM_STATES + Long.SIZE - 1) / Long.SIZE];
+        softRow    = new short[2 * NUM_STATES];
+        codewordRow = new short[LANES];
+
+        int numSymbols = 1 << encoder.outputLength();
+        branchMetrics = new short[numSymbols][2 * NUM_STATES];
+        for (int received = 0; received < numSymbols; ++received) {
+            for (int b = 0; b < 2 * NUM_STATES; ++b) {
+                branchMetrics[received][(b & 0x03) * HALF_STATES + (b >>> 2)] = (short) Integer.bitCount(received ^ branchCodeword(b));
+            }
+        }
+
+        if (numSymbols > LANES)
+            throw new UnsupportedOperationException("[ VectorAcsEngine ] " + numSymbols + " codewords do not fit " + LANES + " lanes");
+        int[] codewords = new int[2 * NUM_STATES];
+        for (int b = 0; b < 2 * NUM_STATES; ++b) {
+            codewords[(b & 0x03) * HALF_STATES + (b >>> 2)] = branchCodeword(b);
+        }
+        @SuppressWarnings("unchecked")
+        VectorShuffle<Short>[] shuffles = (VectorShuffle<Short>[]) new VectorShuffle<?>[2 * NUM_STATES / LANES];
+        for (int r = 0; r < shuffles.length; ++r) {
+            shuffles[r] = VectorShuffle.fromArray(SPECIES, codewords, r * LANES);
+        }
+        softShuffles = shuffles;
+    }
+
+    @Override
+    public int metricBits() { return Short.SIZE; }
+
+    @Override
+    public void start(int startingNode, int unreachable)
+    {
+        Arrays.fill(metric, (short) Math.min(unreachable, MAX_UNREACHABLE));
+        metric[position(startingNode)] = 0;
+        offset = 0;
+        restart();
+    }
+
+    @Override
+    public void step(int symbol)
+    {
+        step(symbol < branchMetrics.length ? branchMetrics[symbol] : erasedMetrics(symbol));
+    }
+
+    @Override
+    public void stepSoft(int[] codewordMetrics)
+    {
+        for (int c = 0; c < codewordMetrics.length; ++c) {
+            codewordRow[c] = (short) codewordMetrics[c];
+        }
+        ShortVector metrics = ShortVector.fromArray(SPECIES, codewordRow, 0);
+        for (int r = 0; r < softShuffles.length; ++r) {
+            metrics.rearrange(softShuffles[r]).intoArray(softRow, r * LANES);
+        }
+        step(softRow);
+    }
+
+    @Override
+    public int bestState()
+    {
+        int best = 0;
+        for (int state = 1; state < NUM_STATES; ++state) {
+            if (metric[position(state)] < metric[position(best)]) {
+                best = state;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public int metric(int state) { return metric[position(state)] + offset; }
+
+    @Override
+    public void normalize(int by)
+    {
+        offset -= by;
+    }
+
+    /*
+     * Metrics of a punctured symbol: erased bits of it add nothing.
+     */
+    private short[] erasedMetrics(int symbol)
+    {
+        int numSymbols = branchMetrics.length;
+        if (erasedMetrics == null) erasedMetrics = new short[numSymbols * numSymbols][];
+        if (erasedMetrics[symbol] == null) {
+            int received = symbol & numSymbols - 1;
+            int counted = ~(symbol / numSymbols) & numSymbols - 1;
+            short[] row = new short[2 * NUM_STATES];
+            for (int b = 0; b < 2 * NUM_STATES; ++b) {
+                row[(b & 0x03) * HALF_STATES + (b >>> 2)] = (short) Integer.bitCount((received ^ branchCodeword(b)) & counted);
+            }
+            erasedMetrics[symbol] = row;
+        }
+        return erasedMetrics[symbol];
+    }
+
+    private int position(int state)
+    {
+        return (state & 0x01) * HALF_STATES + (state >>> 1);
+    }
+
+    private void step(short[] bm)
+    {
+        Arrays.fill(decisions, 0);
+        if (HALF_STATES == LANES) {
+            butterflies(bm);
+        } else {
+            for (int j = 0; j < HALF_STATES; j += 2 * LANES) {
+                butterflies(bm, j, 0);
+                butterflies(bm, j, 1);
+            }
+        }
+
+        short[] m = metric;
+        metric = nextMetric;
+        nextMetric = m;
+        if (metric[0] > RENORMALIZE_AT) renormalize();
+        storeDecisions(decisions);
+    }
+
+    /*
+     * Two runs of LANES butterflies, j and k = j + LANES, for one input bit:
+     * input 0 → states j..., input 1 → states j + HALF_STATES...
+     * Kept apart from step() so C2 inlines every vector operation of it; a vector passed to a call that is not inlined gets boxed.
+     */
+    private void butterflies(short[] bm, int j, int input)
+    {
+        short[] m  = metric;
+        short[] nm = nextMetric;
+        int     k  = j + LANES;
+        int     b  = 2 * input * HALF_STATES;         // branch metrics of input
+        int     n  = input * HALF_STATES / 2 + j / 2;  // even new states first, then odd ones
+        ShortVector evenJ = ShortVector.fromArray(SPECIES, m, j);
+        ShortVector oddJ  = ShortVector.fromArray(SPECIES, m, HALF_STATES + j);
+        ShortVector evenK = ShortVector.fromArray(SPECIES, m, k);
+        ShortVector oddK  = ShortVector.fromArray(SPECIES, m, HALF_STATES + k);
+
+        // on a tie the odd predecessor wins like in the scalar engine
+        ShortVector a0 = evenJ.add(ShortVector.fromArray(SPECIES, bm, b + j));
+        ShortVector a1 = oddJ.add(ShortVector.fromArray(SPECIES, bm, b + HALF_STATES + j));
+        VectorMask<Short> dJ = a1.compare(VectorOperators.LE, a0);
+        ShortVector newJ = a0.blend(a1, dJ);
+
+        ShortVector c0 = evenK.add(ShortVector.fromArray(SPECIES, bm, b + k));
+        ShortVector c1 = oddK.add(ShortVector.fromArray(SPECIES, bm, b + HALF_STATES + k));
+        VectorMask<Short> dK = c1.compare(VectorOperators.LE, c0);
+        ShortVector newK = c0.blend(c1, dK);
+
+        // back to even states first: evens of run j then of run k, and the same for odds
+        newJ = newJ.rearrange(EVENS_LOW);  // evens of j | odds of j
+        newK = newK.rearrange(ODDS_LOW);   // odds of k  | evens of k
+        newJ.blend(newK, UPPER_LANES).intoArray(nm, n);
+        newK.blend(newJ, UPPER_LANES).rearrange(SWAP_HALVES).intoArray(nm, HALF_STATES + n);
+
+        int s = j + input * HALF_STATES;
+        decisions[s >>> 6]         |= bits(dJ) << s;  // shift is taken mod 64
+        decisions[s + LANES >>> 6] |= bits(dK) << s + LANES;
+    }
+
+    /*
+     * All LANES butterflies for both input bits, when that is the whole trellis:
+     * like butterflies(short[], int, int), with input 1 in place of the second run.
+     */
+    private void butterflies(short[] bm)
+    {
+        short[] m  = metric;
+        short[] nm = nextMetric;
+        ShortVector even = ShortVector.fromArray(SPECIES, m, 0);
+        ShortVector odd  = ShortVector.fromArray(SPECIES, m, HALF_STATES);
+
+        ShortVector a0 = even.add(ShortVector.fromArray(SPECIES, bm, 0));
+        ShortVector a1 = odd.add(ShortVector.fromArray(SPECIES, bm, HALF_STATES));
+        VectorMask<Short> d0 = a1.compare(VectorOperators.LE, a0);
+        ShortVector new0 = a0.blend(a1, d0);  // states 0 to HALF_STATES - 1
+
+        ShortVector c0 = even.add(ShortVector.fromArray(SPECIES, bm, 2 * HALF_STATES));
+        ShortVector c1 = odd.add(ShortVector.fromArray(SPECIES, bm, 3 * HALF_STATES));
+        VectorMask<Short> d1 = c1.compare(VectorOperators.LE, c0);
+        ShortVector new1 = c0.blend(c1, d1);  // states HALF_STATES to NUM_STATES - 1
+
+        new0 = new0.rearrange(EVENS_LOW);
+        new1 = new1.rearrange(ODDS_LOW);
+        new0.blend(new1, UPPER_LANES).intoArray(nm, 0);
+        new1.blend(new0, UPPER_LANES).rearrange(SWAP_HALVES).intoArray(nm, HALF_STATES);
+
+        decisions[0]                 |= bits(d0);
+        decisions[HALF_STATES >>> 6] |= bits(d1) << HALF_STATES;  // shift is taken mod 64
+    }
+
+    /*
+     * Same as mask.toLong(), which is not compiled to a vector instruction before JDK 18.
+     * Lanes 2k and 2k + 1 share an int lane, so OR-ing the int lanes gives the even lanes in the low 16 bits
+     * and the odd lanes in the high 16 bits, which are then interleaved.
+     */
+    private static long bits(VectorMask<Short> mask)
+    {
+        int pairs = ShortVector.zero(SPECIES).blend(PAIR_BITS, mask).reinterpretAsInts().reduceLanes(VectorOperators.OR);
+        return spread(pairs & 0xffff) | spread(pairs >>> 16) << 1;
+    }
+
+    private static ShortVector pairBits()
+    {
+        short[] lanes = new short[LANES];
+        for (int i = 0; i < LANES; ++i) {
+            lanes[i] = (short) (1 << i / 2);
+        }
+        return ShortVector.fromArray(SPECIES, lanes, 0);
+    }
+
+    /*
+     * Move bit i to bit 2i.
+     */
+    private static long spread(int x)
+    {
+        long v = x;
+        v = (v | v << 8) & 0x00ff00ffL;
+        v = (v | v << 4) & 0x0f0f0f0fL;
+        v = (v | v << 2) & 0x33333333L;
+        v = (v | v << 1) & 0x55555555L;
+        return v;
+    }
+
+    private void renormalize()
+    {
+        short min = Short.MAX_VALUE;
+        for (int i = 0; i < NUM_STATES; i += LANES) {
+            min = (short) Math.min(min, ShortVector.fromArray(SPECIES, metric, i).reduceLanes(VectorOperators.MIN));
+        }
+        if (min == 0) return;  // state 0 is still unreachable, right after start()
+        for (int i = 0; i < NUM_STATES; i += LANES) {
+            ShortVector.fromArray(SPECIES, metric, i).sub(min).intoArray(metric, i);
+        }
+        offset += min;
+        countRenormalization();
+    }
+}
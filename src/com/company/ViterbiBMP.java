@@ -2,25 +2,45 @@ package com.company;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.InvalidParameterException;
-import java.util.Arrays;
-import java.util.Collections;
 
 public class ViterbiBMP
 {
-    static final int BITS_PER_PIXEL = 24;
+    static final         int BITS_PER_PIXEL = 24;
+    private static final int STREAM_PIECE   = 1 << 16;  // code-text bits handed to the decoder at a time, a multiple of 64
 
-    private final IPlainEncoder   plainEncoder;
-    private final IPlainDecoder   plainDecoder;
-    private final INoiseGenerator noiseGenerator;
-    private final IEncoder        is95Encoder;
-    private final IDecoder        viterbiDecoder;
+    private final IPlainEncoder       plainEncoder;
+    private final IPlainDecoder       plainDecoder;
+    private final INoiseGenerator     noiseGenerator;
+    private final IEncoder            is95Encoder;
+    private final IDecoder            viterbiDecoder;
+    private final ISoftNoiseGenerator softNoiseGenerator;
+    private final ISoftDecoder        softDecoder;
+    private       Path                asciiExportPath;
+    private       IInterleaver        interleaving;
+    private       PipelineMetrics     metrics;
+    private       PuncturePattern     puncturing;
 
     public ViterbiBMP(IPlainEncoder pe, IPlainDecoder pd, INoiseGenerator ng, IEncoder e, IDecoder vd)
+    {
+        this(pe, pd, ng, e, vd, null, null);
+    }
+
+    /**
+     * @param sng Channel for runIS95Soft()
+     * @param svd Decoder for runIS95Soft()
+     */
+    public ViterbiBMP(IPlainEncoder pe, IPlainDecoder pd, INoiseGenerator ng, IEncoder e, IDecoder vd,
+                      ISoftNoiseGenerator sng, ISoftDecoder svd)
     {
         assert equals(pe != null && pd != null && ng != null && e != null && vd != null);
         plainEncoder = pe;
@@ -28,6 +48,56 @@ public class ViterbiBMP
         noiseGenerator = ng;
         is95Encoder = e;
         viterbiDecoder = vd;
+        softNoiseGenerator = sng;
+        softDecoder = svd;
+    }
+
+    /**
+     * Also write the code-text of runIS95() and runPlain() as '0'/'1' characters, for debugging.
+     *
+     * @param p Path of the ASCII copy, null for none
+     */
+    public void setAsciiExport(Path p)
+    {
+        asciiExportPath = p;
+    }
+
+    /**
+     * Puncture the code-text of runIS95() and runIS95Streaming() before it goes through the channel.
+     * The pattern is kept in the codeword file, so decoding follows the file. runIS95Soft() is never punctured.
+     * The decoder should be one that keeps look-ahead behind every bit, like SlidingViterbiDecoder:
+     * ViterbiDecoder decides the last bits of every window without any, and punctured symbols back them with fewer bits,
+     * so a wrong end of one window sets the wrong start of the next.
+     *
+     * @param p Pattern to puncture with, null for none
+     */
+    public void setPuncturing(PuncturePattern p)
+    {
+        if (p != null) p.checkFits(is95Encoder);
+        puncturing = p;
+    }
+
+    /**
+     * Interleave the code-text of runIS95() and runIS95Streaming() before it goes through the channel,
+     * after puncturing. The interleaver is kept in the codeword file, so decoding follows the file.
+     *
+     * @param i Interleaver, null for none
+     */
+    public void setInterleaving(IInterleaver i)
+    {
+        interleaving = i;
+    }
+
+    /**
+     * Count every stage of runIS95() and runIS95Streaming() into m: wall time, bits and allocation per stage,
+     * the blocks the hard decision decoder decoded, the channel errors, and the errors displayErrors() finds.
+     *
+     * @param m Metrics to add to, null for none
+     */
+    public void setMetrics(PipelineMetrics m)
+    {
+        metrics = m;
+        viterbiDecoder.setMetrics(m == null ? null : m.decoder());
     }
 
     /**
@@ -42,14 +112,14 @@ public class ViterbiBMP
     }
 
     /**
-     * Execute IS-95 standard encoding of the BMP image pixels to text file containing '0's and '1's.
-     * Execute Viterbi decoding of text file to new image file.
+     * Execute IS-95 standard encoding of the BMP image pixels to a codeword file.
+     * Execute Viterbi decoding of the mapped codeword file to new image file.
      *
      * @param inBMPPath Path to original BMP image
-     * @param txtPath Path to output txt file
+     * @param codePath Path to output codeword file
      * @param outBMPPath Path to decoded BMP image
      */
-    public void runIS95(Path inBMPPath, Path txtPath, Path outBMPPath)
+    public void runIS95(Path inBMPPath, Path codePath, Path outBMPPath)
     {
         // read BMP image from disk:
         BufferedImage inImg = null;
@@ -60,30 +130,143 @@ public class ViterbiBMP
         }
         assert equals(inImg != null);
 
-        // encode image, add noise and write ascii code-text to disk:
-        String is95Text = is95Encoder.encode(inImg);
+        // encode image, add noise and write code-text to disk:
+        PipelineMetrics.Span span = PipelineMetrics.begin(metrics, "encode");
+        BitBuffer is95Bits = new BitBuffer();
+        is95Encoder.encode(inImg, is95Bits);
+        PipelineMetrics.end(span, (long) inImg.getWidth() * inImg.getHeight() * BITS_PER_PIXEL, is95Bits.length());
+        IBitStage transmitter = transmitStages(puncturing, interleaving);
+        if (transmitter != null) {
+            span = PipelineMetrics.begin(metrics, "transmit");
+            BitBuffer sent = new BitBuffer(is95Bits.length());
+            transmitter.process(is95Bits, sent);
+            transmitter.end(sent);
+            PipelineMetrics.end(span, is95Bits.length(), sent.length());
+            is95Bits = sent;
+        }
         if (noiseGenerator != null) {
-            is95Text = noiseGenerator.noisify(is95Text);
+            span = PipelineMetrics.begin(metrics, "channel");
+            noiseGenerator.resetStatistics();  // noisify() leaves them alone when there is no noise
+            noiseGenerator.noisify(is95Bits);
+            PipelineMetrics.end(span, is95Bits.length(), is95Bits.length());
+            if (metrics != null) metrics.recordChannel(is95Bits.length(), noiseGenerator.errorCount());
+        }
+        try {
+            span = PipelineMetrics.begin(metrics, "write");
+            CodewordFile.write(codePath, is95Encoder, puncturing, interleaving, inImg.getWidth(), inImg.getHeight(), is95Bits);
+            PipelineMetrics.end(span, is95Bits.length(), is95Bits.length());
+            if (asciiExportPath != null) writeCodeText(asciiExportPath, is95Bits);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        // map code-text from disk, the decoder reads it in place:
+        CodewordFile codeFile = null;
+        try {
+            codeFile = CodewordFile.map(codePath);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        assert equals(codeFile != null);
+        codeFile.checkEncoder(is95Encoder);
+
+        // decode image a piece at a time, rows are filled in as the decoder emits them:
+        PuncturePattern pattern = codeFile.puncturing();
+        IBitStage receiver = receiveStages(pattern, codeFile.interleaving());
+        ImageSink sink = new ImageSink(codeFile.width(), codeFile.height());
+        BitBuffer plainBits = new BitBuffer(STREAM_PIECE / is95Encoder.outputLength() + BITS_PER_PIXEL);
+        BitBuffer received = new BitBuffer();
+        IBitSource codeBits = codeFile.bits();
+        viterbiDecoder.setPuncturing(pattern);
+        viterbiDecoder.beginStream();
+        for (int from = 0; from < codeBits.length(); from += STREAM_PIECE) {
+            IBitSource bits = codeFile.bits(from, Math.min(STREAM_PIECE, codeBits.length() - from));
+            if (receiver != null) {
+                span = PipelineMetrics.begin(metrics, "receive");
+                received.clear();
+                receiver.process(bits, received);
+                PipelineMetrics.end(span, bits.length(), received.length());
+                bits = received;
+            }
+            span = PipelineMetrics.begin(metrics, "decode");
+            viterbiDecoder.decodeStream(bits, plainBits);
+            PipelineMetrics.end(span, bits.length(), plainBits.length());
+            span = PipelineMetrics.begin(metrics, "sink");
+            sink.append(plainBits);
+            PipelineMetrics.end(span, plainBits.length(), plainBits.length());
+            plainBits.clear();
+        }
+        received.clear();
+        if (receiver != null) {
+            span = PipelineMetrics.begin(metrics, "receive");
+            receiver.end(received);
+            PipelineMetrics.end(span, 0, received.length());
         }
+        span = PipelineMetrics.begin(metrics, "decode");
+        if (receiver != null) viterbiDecoder.decodeStream(received, plainBits);
+        viterbiDecoder.endStream(plainBits);
+        PipelineMetrics.end(span, received.length(), plainBits.length());
+        span = PipelineMetrics.begin(metrics, "sink");
+        sink.append(plainBits);
+        PipelineMetrics.end(span, plainBits.length(), plainBits.length());
+        BufferedImage outImg = sink.image();
         try {
-            Files.write(txtPath, Collections.singleton(is95Text));
+            ImageIO.write(outImg, "bmp", new File(outBMPPath.toString()));
         } catch (IOException e) {
             e.printStackTrace();
         }
+    }
 
-        // read ASCII code-text from disk:
-        byte[] codeText = null;
+    /**
+     * Same as runIS95() but the channel hands over quantized soft values and the soft decision decoder decodes them.
+     * The txt file holds one hex digit per soft value.
+     * The run is never punctured, interleaved, measured or exported as ASCII; setting any of those first is an error.
+     *
+     * @param inBMPPath Path to original BMP image
+     * @param txtPath Path to output txt file
+     * @param outBMPPath Path to decoded BMP image
+     * @param quantizationBits Bits per soft value, 1 to 4
+     */
+    public void runIS95Soft(Path inBMPPath, Path txtPath, Path outBMPPath, int quantizationBits)
+    {
+        if (softNoiseGenerator == null || softDecoder == null)
+            throw new IllegalStateException("[ ViterbiBMP ] No soft channel and soft decoder were given");
+        if (puncturing != null || interleaving != null || metrics != null || asciiExportPath != null)
+            throw new IllegalStateException("[ ViterbiBMP ] Soft decision runs are not punctured, interleaved, measured or exported as ASCII");
+
+        // read BMP image from disk:
+        BufferedImage inImg = null;
         try {
-            codeText = readCodeText(txtPath);
+            inImg = ImageIO.read(new File(String.valueOf(inBMPPath)));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        assert equals(inImg != null);
+
+        // encode image, send it through the channel and write soft code-text to disk:
+        BitBuffer is95Bits = new BitBuffer();
+        is95Encoder.encode(inImg, is95Bits);
+        softNoiseGenerator.setQuantizationBits(quantizationBits);
+        SoftBuffer is95Soft = softNoiseGenerator.noisifySoft(is95Bits, new SoftBuffer(quantizationBits, is95Bits.length()));
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(txtPath))) {
+            is95Soft.writeAscii(out);
+            out.write(System.lineSeparator().getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        // read soft code-text from disk:
+        SoftBuffer codeSoft = null;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(txtPath))) {
+            codeSoft = SoftBuffer.readAscii(in, quantizationBits);  // EOL is skipped
         } catch (IOException e) {
             e.printStackTrace();
         }
-        assert equals(codeText != null);
+        assert equals(codeSoft != null);
 
         // decode image and write to disk:
-        byte[] plainText = viterbiDecoder.decodeIS95(codeText, inImg.getWidth() * inImg.getHeight());
-        // after decoding use existing functionality to write plain-text to BMP:
-        BufferedImage outImg = plainDecoder.decodeBMP(plainText, inImg.getWidth(), inImg.getHeight());
+        BitBuffer plainBits = softDecoder.decodeIS95(codeSoft, inImg.getWidth() * inImg.getHeight());
+        BufferedImage outImg = plainDecoder.decodeBMP(plainBits, inImg.getWidth(), inImg.getHeight());
         try {
             ImageIO.write(outImg, "bmp", new File(outBMPPath.toString()));
         } catch (IOException e) {
@@ -92,14 +275,35 @@ public class ViterbiBMP
     }
 
     /**
-     * Execute plain-text direct encoding of the BMP image pixels to text file containing '0's and '1's.
-     * Execute decoding of text file to new image file.
+     * Same as runIS95() but with all stages running concurrently on chunks of scanlines,
+     * so the code-text is never held in memory as a whole.
      *
      * @param inBMPPath Path to original BMP image
      * @param txtPath Path to output txt file
      * @param outBMPPath Path to decoded BMP image
      */
-    public void runPlain(Path inBMPPath, Path txtPath, Path outBMPPath)
+    public void runIS95Streaming(Path inBMPPath, Path txtPath, Path outBMPPath)
+    {
+        StreamingPipeline pipeline = new StreamingPipeline(is95Encoder, noiseGenerator, viterbiDecoder);
+        pipeline.setPuncturing(puncturing);
+        pipeline.setInterleaving(interleaving);
+        pipeline.setMetrics(metrics);
+        try {
+            pipeline.run(inBMPPath, txtPath, outBMPPath);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Execute plain-text direct encoding of the BMP image pixels to a codeword file.
+     * Execute decoding of the mapped codeword file to new image file.
+     *
+     * @param inBMPPath Path to original BMP image
+     * @param codePath Path to output codeword file
+     * @param outBMPPath Path to decoded BMP image
+     */
+    public void runPlain(Path inBMPPath, Path codePath, Path outBMPPath)
     {
         // read BMP image from disk:
         BufferedImage inImg = null;
@@ -110,28 +314,30 @@ public class ViterbiBMP
         }
         assert equals(inImg != null);
 
-        // encode image, add noise and write ascii to disk:
-        String plainText = plainEncoder.encode(inImg);
+        // encode image, add noise and write plain-text to disk:
+        BitBuffer plainBits = new BitBuffer();
+        plainEncoder.encode(inImg, plainBits);
         if (noiseGenerator != null) {
-            plainText = noiseGenerator.noisify(plainText);
+            noiseGenerator.noisify(plainBits);
         }
         try {
-            Files.write(txtPath, Collections.singleton(plainText));
+            CodewordFile.write(codePath, plainEncoder.getClass().getSimpleName(), 0, 1, inImg.getWidth(), inImg.getHeight(), plainBits);
+            if (asciiExportPath != null) writeCodeText(asciiExportPath, plainBits);
         } catch (IOException e) {
             e.printStackTrace();
         }
 
-        // read ASCII from disk:
-        byte[] asciiBytes = null;
+        // map plain-text from disk:
+        CodewordFile codeFile = null;
         try {
-            asciiBytes = readCodeText(txtPath);
+            codeFile = CodewordFile.map(codePath);
         } catch (IOException e) {
             e.printStackTrace();
         }
-        assert equals(asciiBytes != null);
+        assert equals(codeFile != null);
 
         // decode image and write BMP to disk:
-        BufferedImage outImg = plainDecoder.decodeBMP(asciiBytes, inImg.getWidth(), inImg.getHeight());
+        BufferedImage outImg = plainDecoder.decodeBMP(codeFile.bits(), codeFile.width(), codeFile.height());
         try {
             ImageIO.write(outImg, "bmp", new File(outBMPPath.toString()));
         } catch (IOException e) {
@@ -161,21 +367,38 @@ public class ViterbiBMP
             }
         }
 
+        if (metrics != null) metrics.recordResidualErrors((long) inImg.getWidth() * inImg.getHeight() * BITS_PER_PIXEL, errors);
         return errors;
     }
 
-    private byte[] readCodeText(Path path) throws IOException
+    /**
+     * @return Puncturer then interleaver, null if there is neither
+     */
+    static IBitStage transmitStages(PuncturePattern pattern, IInterleaver interleaver)
     {
-        byte[] bytes = Files.readAllBytes(path);  // assume there is correct number of bytes
+        if (pattern == null) return interleaver == null ? null : interleaver.interleaver();
+        if (interleaver == null) return pattern.puncturer();
+        return new BitStageChain(pattern.puncturer(), interleaver.interleaver());
+    }
 
-        // trim EOL:
-        if (bytes[bytes.length-1] == 0x0D)  // CR - macOS
-            bytes = Arrays.copyOfRange(bytes, 0, bytes.length - 1);
-        else if (bytes[bytes.length-1] == 0x0A)  // LF - Unix/Mac
-            bytes = Arrays.copyOfRange(bytes, 0, bytes.length-1);
-        else if (bytes[bytes.length-2] == 0x0D && bytes[bytes.length-1] == 0x0A)  // CR LF - Windows
-            bytes = Arrays.copyOfRange(bytes, 0, bytes.length-2);
+    /**
+     * @return Deinterleaver then depuncturer, undoing transmitStages(), null if there is neither
+     */
+    static IBitStage receiveStages(PuncturePattern pattern, IInterleaver interleaver)
+    {
+        if (pattern == null) return interleaver == null ? null : interleaver.deinterleaver();
+        if (interleaver == null) return pattern.depuncturer();
+        return new BitStageChain(interleaver.deinterleaver(), pattern.depuncturer());
+    }
 
-        return bytes;
+    /*
+     * The ASCII export is written as '0'/'1' characters on one line, converting from packed bits a chunk at a time.
+     */
+    private void writeCodeText(Path path, BitBuffer bits) throws IOException
+    {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            bits.writeAscii(out);
+            out.write(System.lineSeparator().getBytes(StandardCharsets.US_ASCII));
+        }
     }
 }
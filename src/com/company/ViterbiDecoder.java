@@ -1,66 +1,163 @@
 package com.company;
 
-import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
+import java.security.InvalidParameterException;
 import java.util.Arrays;
-import java.util.NoSuchElementException;
 
 import static com.company.ViterbiBMP.BITS_PER_PIXEL;
 
 /**
  * Class implementing Viterbi Hard Decision decoder.
  */
-public class ViterbiDecoder implements IDecoder
+public class ViterbiDecoder extends SymbolStreamDecoder
 {
+    private static final int NOT_SAMPLED = -2;  // merge depth of a block not sampled, see DecodeBlockEvent
+
+    private       AcsEngine          acs;
     private       int                decodingDepth;
-    private final IEncoder           encoder;
-    private       int                fullPathMetric;
+    private       long               fullPathMetric;
     private       int                MAX_PATH_METRIC;
-    private final int                MASK;
-    private final int                NUM_STATES;
-    private       int[][]            pathMetric;
-    private       int[][]            pathPreviousNode;
-    private final StateTransitionLUT transitions;
+    private       DecoderMetrics     metrics;
+    private       int                paddingSymbol;  // fills the final window, see setPuncturing()
+    private       int                streamFill;
+    private       int[]              streamWindow;
     private       int                terminalNode = 0;
+    private final StateTransitionLUT transitions;
 
     public ViterbiDecoder(IEncoder e)
     {
-        encoder     = e;
-        NUM_STATES  = (int) Math.pow(2, encoder.delay());
-        MASK        = NUM_STATES - 1;
-        transitions = new StateTransitionLUT(encoder);
+        super(e);
+        transitions = StateTransitionLUT.of(encoder);
+        acs = AcsEngine.create(encoder, transitions);
     }
 
     @Override
     public byte[] decodeIS95(byte[] codeText, int numPixels)
     {
+        beginSymbols();  // every call decodes a new code-text from the encoder's initial state
         int[] signalChunks = parseToIntArray(codeText);
-
-        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < signalChunks.length; ++i) {
+            signalChunks[i] |= erasures(i);
+        }
+        BitBuffer plainBits = new BitBuffer(signalChunks.length + decodingDepth);
 
         for (int i = 0; i < signalChunks.length; i += decodingDepth) {
-            /*
-             * During final iteration the remaining available signal might be shorter than required for the expected decoding depth.
-             * That is not a problem because the copyOfRange() method automatically pads with zeroes.
-             * Later we will trim the excess.
-             */
-            int[] toDecode = Arrays.copyOfRange(signalChunks, i, i + decodingDepth);
-            initViterbi(terminalNode, toDecode);
-            viterbi(toDecode);
-            sb.append(originalMessage());
+            if (i + decodingDepth <= signalChunks.length) {
+                decodeWindow(signalChunks, i, plainBits);
+            } else {
+                /*
+                 * During final iteration the remaining available signal might be shorter than required for the expected decoding depth.
+                 * Pad, later we will trim the excess.
+                 */
+                Arrays.fill(streamWindow, paddingSymbol);
+                System.arraycopy(signalChunks, i, streamWindow, 0, signalChunks.length - i);
+                decodeWindow(streamWindow, 0, plainBits);
+            }
         }
 
-//        byte[] plainText = sb.reverse().toString().getBytes(StandardCharsets.UTF_8);
-        byte[] plainText = sb.toString().getBytes(StandardCharsets.UTF_8);
-        /*
-         * We are expecting height × width × BITS_PER_PIXEL bytes of image data (for bee100.bmp it's 978000 bytes).
-         * Trim the excess if padding occurred.
-         */
-        if (plainText.length > numPixels * BITS_PER_PIXEL)
-            plainText = Arrays.copyOf(plainText, numPixels * BITS_PER_PIXEL);
+        trimPadding(plainBits, numPixels);
+        System.out.println("[ ViterbiDecoder ] Full path metric: " + fullPathMetric);
+        return plainBits.toAscii();
+    }
 
+    @Override
+    public BitBuffer decodeIS95(IBitSource codeBits, int numPixels)
+    {
+        BitBuffer plainBits = new BitBuffer(codeBits.length() / encoder.outputLength() + decodingDepth);
+        decodeIS95(codeBits, numPixels, plainBits);
         System.out.println("[ ViterbiDecoder ] Full path metric: " + fullPathMetric);
-        return plainText;
+        return plainBits;
+    }
+
+    /**
+     * Decode straight into the caller's buffer. Symbols are read from the packed code-text
+     * one window at a time into a preallocated window and bits are traced back directly into out,
+     * so once out is large enough nothing is allocated.
+     */
+    @Override
+    public void decodeIS95(IBitSource codeBits, int numPixels, BitBuffer out)
+    {
+        int symbolLength = encoder.outputLength();
+        int numSymbols = codeBits.length() / symbolLength;
+
+        beginSymbols();
+        out.clear();
+        out.ensureCapacity(numSymbols + decodingDepth);
+        for (int i = 0; i < numSymbols; i += decodingDepth) {
+            int n = Math.min(decodingDepth, numSymbols - i);
+            SymbolUnpacker.unpack(codeBits, i * symbolLength, symbolLength, streamWindow, 0, n);
+            for (int k = 0; k < n; ++k) {
+                streamWindow[k] |= erasures(i + k);
+            }
+            Arrays.fill(streamWindow, n, decodingDepth, paddingSymbol);  // pad the final window
+            decodeWindow(streamWindow, 0, out);
+        }
+
+        trimPadding(out, numPixels);
+    }
+
+    /**
+     * @return Sum of the best path metrics of all windows decoded so far
+     */
+    public long fullPathMetric() { return fullPathMetric; }
+
+    @Override
+    public void setMetricBits(int bits) throws InvalidParameterException
+    {
+        AcsEngine narrow = AcsEngine.create(encoder, transitions, bits);
+        narrow.setPackedSurvivors(acs.packedSurvivors());
+        narrow.setDepth(acs.depth());
+        acs = narrow;
+    }
+
+    @Override
+    public int metricBits() { return acs.metricBits(); }
+
+    @Override
+    public long renormalizations() { return acs.renormalizations(); }
+
+    /**
+     * With a pattern the final window is padded with erased symbols instead of 0s. The code-text is not terminated,
+     * so padding 0s outweigh the last bits of a punctured code, which fewer code-text bits back, and decode them wrong.
+     */
+    @Override
+    public void setPuncturing(PuncturePattern pattern) throws InvalidParameterException
+    {
+        super.setPuncturing(pattern);
+        int symbolMask = (1 << encoder.outputLength()) - 1;
+        paddingSymbol = pattern == null ? 0 : symbolMask << encoder.outputLength();
+    }
+
+    @Override
+    public void setMetrics(DecoderMetrics m)
+    {
+        metrics = m;
+    }
+
+    @Override
+    protected void beginSymbols()
+    {
+        terminalNode = 0;
+        streamFill = 0;
+    }
+
+    @Override
+    protected void decodeSymbol(int symbol, BitBuffer out)
+    {
+        streamWindow[streamFill++] = symbol;
+        if (streamFill == decodingDepth) {
+            decodeWindow(streamWindow, 0, out);
+            streamFill = 0;
+        }
+    }
+
+    @Override
+    protected void endSymbols(BitBuffer out)
+    {
+        if (streamFill > 0) {
+            Arrays.fill(streamWindow, streamFill, decodingDepth, paddingSymbol);  // pad like decodeIS95() does
+            decodeWindow(streamWindow, 0, out);
+            streamFill = 0;
+        }
     }
 
     @Override
@@ -76,63 +173,56 @@ public class ViterbiDecoder implements IDecoder
             decodingDepth = d;
         }
         MAX_PATH_METRIC  = encoder.outputLength() * decodingDepth;
-        pathMetric       = new int[NUM_STATES][decodingDepth];
-        pathPreviousNode = new int[NUM_STATES][decodingDepth];
+        streamWindow     = new int[decodingDepth];
+        acs.setDepth(decodingDepth);
     }
 
-    private int hamming(int a, int b)
+    /**
+     * Store one decision bit per state per step instead of a whole predecessor node.
+     * Survivor memory shrinks 32 times, decoded output is the same.
+     *
+     * @param p true for bit-packed survivors
+     */
+    public void setPackedSurvivors(boolean p)
     {
-        return Integer.bitCount(a ^ b);
+        acs.setPackedSurvivors(p);
     }
 
-    private void initViterbi(int startingNode, int[] toDecode)
+    private void decodeWindow(int[] toDecode, int from, BitBuffer out)
     {
-        // init 2 first possible edges (depth 1):
-        wipePathMetric();
-        pathMetric[startingNode >>> 1][0] = hamming(toDecode[0], transitions.output(startingNode, 0));
-        pathMetric[startingNode >>> 1 | 0x01 << encoder.delay() - 1][0] = hamming(toDecode[0], transitions.output(startingNode, 1));
-
-        // init previous vertex for first 2 possible edges (depth 1):
-        wipePathPreviousNode();
-        pathPreviousNode[startingNode >>> 1][0] = startingNode;
-        pathPreviousNode[startingNode >>> 1 | 0x01 << encoder.delay() - 1][0] = startingNode;
+        // no paths exist in the beginning, all but the starting node get metric maximum + 1:
+        acs.start(terminalNode, MAX_PATH_METRIC + 1);
+        for (int depth = 0; depth < decodingDepth; ++depth) {
+            acs.step(toDecode[from + depth]);
+        }
+        originalMessage(out);
     }
 
-    private String originalMessage()
+    private void originalMessage(BitBuffer out)
     {
         // find terminal node with lowest path metric
-        terminalNode = 0;
-        for (int node = 0; node < NUM_STATES; ++node) {
-            if (pathMetric[node][decodingDepth-1] < pathMetric[terminalNode][decodingDepth - 1]) {
-                terminalNode = node;
-            }
-        }
-
-        fullPathMetric += pathMetric[terminalNode][decodingDepth -1];
+        terminalNode = acs.bestState();
+        fullPathMetric += acs.metric(terminalNode);
+        if (metrics != null) recordBlock();
 
         // read the path from terminal node back to starting node:
-        int[] origMessage = new int[decodingDepth];
-        int currentNode = terminalNode;
-        int prevNode;
-        int input;
-        for (int depth = decodingDepth - 1; depth >= 0; --depth) {
-            prevNode = pathPreviousNode[currentNode][depth];
-            if (transitions.nextState(prevNode, 0) == currentNode) {
-                input = 0;
-            } else if (transitions.nextState(prevNode, 1) == currentNode) {
-                input = 1;
-            } else throw new NoSuchElementException("Impossible IS-95 state machine transition from state " + prevNode + " to state " + currentNode + " in Viterbi path at depth " + depth);
-            origMessage[depth] = input;
-            currentNode = prevNode;
-        }
+        acs.traceback(terminalNode, out);
+    }
 
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < decodingDepth; ++i) {
-            sb.append(Integer.toBinaryString(origMessage[i]));
-//            sb.append(Integer.toBinaryString(origMessage[decodingDepth -1 -i]));
+    private void recordBlock()
+    {
+        int bestPathMetric = acs.metric(terminalNode);
+        int mergeDepth = metrics.sampleMerge() ? acs.mergeDepth() : NOT_SAMPLED;
+        metrics.recordBlock(bestPathMetric, decodingDepth);
+        if (mergeDepth != NOT_SAMPLED) metrics.recordMergeDepth(mergeDepth);
+
+        DecodeBlockEvent event = new DecodeBlockEvent();
+        if (event.shouldCommit()) {
+            event.bestPathMetric = bestPathMetric;
+            event.mergeDepth = mergeDepth;
+            event.bits = decodingDepth;
+            event.commit();
         }
-
-        return sb.toString();
     }
 
     /**
@@ -142,7 +232,8 @@ public class ViterbiDecoder implements IDecoder
      * Least significant bits of each int are equivalent to IS95_OUTPUT_LENGTH consecutive bits.
      * Symbols received earlier occupy more significant bits.
      * Remaining most significant bits are padded with 0.
-     * Assume source byte array contains only '0's and '1's and is correct size.
+     * Source byte array must contain only '0's and '1's, characters after the last whole symbol are ignored.
+     * Unpacked in bulk by SymbolUnpacker.
      * Signed int are used because the bits are not affected.
      *
      * @param src Source byte array
@@ -150,58 +241,15 @@ public class ViterbiDecoder implements IDecoder
      */
     private int[] parseToIntArray(byte[] src)
     {
-        int[] ret = new int[src.length / encoder.outputLength()];
-
-        for (int i = 0; i < src.length; i += encoder.outputLength()) {
-            ret[i / encoder.outputLength()] = new BigInteger(new String(src, i, encoder.outputLength()), 2).intValue();
-        }
-
-        return ret;
-    }
-
-    private void viterbi(int[] toDecode)
-    {
-        int prev0, prev1;  // two possible previous vertices
-        int input;  // one possible input to get to current state
-        int metric0, metric1;
-        for (int depth = 2; depth <= decodingDepth; ++depth) {  // begin with depth 2
-            for (int state = 0; state < NUM_STATES; ++state) {
-                prev0 = state << 1 & MASK;
-                prev1 = state << 1 & MASK | 0x01;
-                if (pathPreviousNode[prev0][depth - 2] > -1 || pathPreviousNode[prev1][depth - 2] > -1) {  // path to one of previous vertices exists
-                    input = state >>> encoder.delay() - 1;
-                    metric0 = pathMetric[prev0][depth - 2] + hamming(toDecode[depth - 1], transitions.output(prev0, input));
-                    metric1 = pathMetric[prev1][depth - 2] + hamming(toDecode[depth - 1], transitions.output(prev1, input));
-                    if (metric0 < metric1) {
-                        pathMetric[state][depth - 1]       = metric0;
-                        pathPreviousNode[state][depth - 1] = prev0;
-                    }
-                    else {
-                        pathMetric[state][depth - 1]       = metric1;
-                        pathPreviousNode[state][depth - 1] = prev1;
-                    }
-                }
-            }
-        }
-    }
-
-    /*
-     * No paths exist in the beginning. All metrics are set to maximum + 1.
-     */
-    private void wipePathMetric()
-    {
-        for (int i = 0; i < NUM_STATES; ++i) {
-            Arrays.fill(pathMetric[i], MAX_PATH_METRIC + 1);
-        }
+        return SymbolUnpacker.unpack(src, encoder.outputLength());
     }
 
     /*
-     * No paths exist in the beginning. All previous vertices are set to -1.
+     * We are expecting height × width × BITS_PER_PIXEL bits of image data (for bee100.bmp it's 978000 bits).
+     * Trim the excess if padding occurred.
      */
-    private void wipePathPreviousNode()
+    private void trimPadding(BitBuffer plainBits, int numPixels)
     {
-        for (int i = 0; i < NUM_STATES; ++i) {
-            Arrays.fill(pathPreviousNode[i], -1);
-        }
+        plainBits.truncate(numPixels * BITS_PER_PIXEL);
     }
 }
@@ -0,0 +1,101 @@
+package com.company;
+
+import java.awt.image.BufferedImage;
+
+import static com.company.ViterbiBMP.BITS_PER_PIXEL;
+
+/**
+ * EncoderIS95 as it was before ConvolutionalEncoder replaced it, kept verbatim as the reference
+ * the byte-wise encoder must stay bit-identical to. Only the class name and the dropped IEncoder differ.
+ */
+class BaselineEncoderIS95
+{
+    final int     OUTPUT_LENGTH;  // 32 bit maximum
+    final int     DELAY            = 8;
+    final boolean WITH_OUTPUT_BITS = false;
+
+    BaselineEncoderIS95()
+    {
+        if (WITH_OUTPUT_BITS)
+            OUTPUT_LENGTH = 4;
+        else
+            OUTPUT_LENGTH = 3;
+    }
+
+    public int delay() { return DELAY; }
+
+    public String encode(BufferedImage inImg) throws NullPointerException
+    {
+//        if (inImg == null) throw new NullPointerException("Load BMP image from disk first!");
+
+        StringBuilder sb = new StringBuilder();
+        int rgb;
+        byte lsr = 0;
+
+        for (int h = 0; h < inImg.getHeight(); ++h) {
+            for (int w = 0; w < inImg.getWidth(); ++w) {
+                rgb = inImg.getRGB(w, h);
+                rgb = Integer.reverse(rgb);  // 8 bits of alpha channel are now LSB
+                rgb &= 0xffffff00;  // wipe alpha channel bits
+//                rgb <<= 32 - BITS_PER_PIXEL;
+                sb.append(encode24bits(rgb | (int)lsr & 0xff));
+                lsr = (byte) (rgb >>> BITS_PER_PIXEL);
+//                lsr = (byte) (Integer.reverse(lsr) >>> BITS_PER_PIXEL);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private String encode24bits(int rgblsr)
+    {
+        StringBuilder sb = new StringBuilder();
+
+        for(int i = 0; i < BITS_PER_PIXEL; ++i) {
+            sb.append(g0(rgblsr));  // c0
+            if (WITH_OUTPUT_BITS) sb.append(rgblsr & 0x01);  // output bits
+            sb.append(g1(rgblsr));  // c1
+            sb.append(g2(rgblsr));  // c2
+            rgblsr >>>= 1;
+        }
+
+        return sb.toString();
+    }
+
+    public int g0(int inputBitsLSR)  // octal 557, decimal 367, binary 101101111
+    {
+        return Integer.bitCount(inputBitsLSR & 0b1_0110_1111) % 2;
+/*        return (inputBitsLSR >> 8 ^
+                inputBitsLSR >> 6 ^
+                inputBitsLSR >> 5 ^
+                inputBitsLSR >> 3 ^
+                inputBitsLSR >> 2 ^
+                inputBitsLSR >> 1 ^
+                inputBitsLSR) & 0x01; */
+    }
+
+    public int g1(int inputBitsLSR)  // octal 663
+    {
+        return Integer.bitCount(inputBitsLSR & 0b1_1011_0011) % 2;
+/*        return (inputBitsLSR >> 8 ^
+                inputBitsLSR >> 7 ^
+                inputBitsLSR >> 5 ^
+                inputBitsLSR >> 4 ^
+                inputBitsLSR >> 1 ^
+                inputBitsLSR) & 0x01; */
+    }
+
+    public int g2(int inputBitsLSR)  // octal 711
+    {
+        return Integer.bitCount(inputBitsLSR & 0b1_1100_1001) % 2;
+/*        return (inputBitsLSR >> 8 ^
+                inputBitsLSR >> 7 ^
+                inputBitsLSR >> 6 ^
+                inputBitsLSR >> 3 ^
+                inputBitsLSR) & 0x01; */
+    }
+
+    public int outputLength() { return OUTPUT_LENGTH; }
+
+    public boolean withOutputBits() { return WITH_OUTPUT_BITS; }
+}
@@ -0,0 +1,94 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CodewordFileTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    void headerKeepsTheGenerators() throws IOException
+    {
+        Path path = dir.resolve("k7.vcw");
+        CodewordFile.write(path, ConvolutionalEncoder.k7RateHalf(), 3, 2, bits(3 * 2 * 24 * 2));
+
+        CodewordFile file = CodewordFile.map(path);
+        assertArrayEquals(new int[] {0171, 0133}, file.generators());
+        assertEquals(6, file.delay());
+        assertEquals(2, file.outputLength());
+        assertDoesNotThrow(() -> file.checkEncoder(ConvolutionalEncoder.forName("7:171,133")));
+    }
+
+    @Test
+    void codeOfTheSameRateAndDelayIsRejected() throws IOException
+    {
+        Path path = dir.resolve("k7.vcw");
+        CodewordFile.write(path, ConvolutionalEncoder.k7RateHalf(), 3, 2, bits(3 * 2 * 24 * 2));
+
+        CodewordFile file = CodewordFile.map(path);
+        assertThrows(InvalidParameterException.class, () -> file.checkEncoder(ConvolutionalEncoder.forName("7:133,171")));
+        assertThrows(InvalidParameterException.class, () -> file.checkEncoder(ConvolutionalEncoder.forName("7:171,131")));
+    }
+
+    @Test
+    void plainTextHasNoGenerators() throws IOException
+    {
+        Path path = dir.resolve("plain.vcw");
+        CodewordFile.write(path, "PlainEncoder", 0, 1, 3, 2, bits(3 * 2 * 24));
+
+        assertNull(CodewordFile.map(path).generators());
+    }
+
+    @Test
+    void plainTextIsNoCodeText() throws IOException
+    {
+        Path path = dir.resolve("plain.vcw");
+        CodewordFile.write(path, "PlainEncoder", 0, 1, 3, 2, bits(3 * 2 * 24));
+
+        CodewordFile file = CodewordFile.map(path);
+        assertThrows(InvalidParameterException.class, () -> file.checkEncoder(new EncoderIS95()));
+    }
+
+    @Test
+    void codeTextWithoutGeneratorsIsRejected() throws IOException
+    {
+        Path path = dir.resolve("k7.vcw");
+        CodewordFile.write(path, "ConvolutionalEncoder", 6, 2, 3, 2, bits(3 * 2 * 24 * 2));
+
+        assertThrows(IOException.class, () -> CodewordFile.map(path));
+    }
+
+    @Test
+    void truncatedHeaderIsRejected() throws IOException
+    {
+        Path path = dir.resolve("short.vcw");
+        CodewordFile.write(path, ConvolutionalEncoder.k7RateHalf(), 3, 2, bits(3 * 2 * 24 * 2));
+        byte[] file = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(file, CodewordFile.HEADER_BYTES - Short.BYTES));
+
+        assertThrows(IOException.class, () -> CodewordFile.map(path));
+    }
+
+    private static BitBuffer bits(int count)
+    {
+        BitBuffer bits = new BitBuffer(count);
+        for (int i = 0; i < count; ++i) {
+            bits.append(i % 3 == 0 ? 1 : 0);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,63 @@
+package com.company;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The byte-wise encoder must give the same code-text as EncoderIS95 did before it, whatever way readRow() reads the pixels.
+ */
+class ConvolutionalEncoderTest
+{
+    private static final int HEIGHT = 9;
+    private static final int WIDTH  = 23;
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR})
+    void encodesLikeTheBaseline(int type)
+    {
+        BufferedImage img = randomImage(WIDTH, HEIGHT, type, type);
+        assertEncodesLikeTheBaseline(img);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR})
+    void encodesSubimagesLikeTheBaseline(int type)
+    {
+        // the raster of a subimage has a parent, so its rows are not where the data buffer starts:
+        BufferedImage img = randomImage(WIDTH + 5, HEIGHT + 4, type, type).getSubimage(3, 2, WIDTH, HEIGHT);
+        assertEncodesLikeTheBaseline(img);
+    }
+
+    private static void assertEncodesLikeTheBaseline(BufferedImage img)
+    {
+        String expected = new BaselineEncoderIS95().encode(img);
+        IEncoder encoder = new EncoderIS95();
+        assertEquals(expected, encoder.encode(img), "whole image");
+
+        BitBuffer rows = new BitBuffer();
+        for (int h = 0; h < img.getHeight(); h += 2) {
+            encoder.encode(img, h, Math.min(h + 2, img.getHeight()), rows);
+        }
+        assertEquals(expected, rows.toString(), "two rows at a time");
+    }
+
+    /*
+     * Random pixels with random alpha where the type keeps it, which the encoders must both ignore.
+     */
+    private static BufferedImage randomImage(int width, int height, int type, long seed)
+    {
+        Random random = new Random(seed);
+        BufferedImage img = new BufferedImage(width, height, type);
+        for (int h = 0; h < height; ++h) {
+            for (int w = 0; w < width; ++w) {
+                img.setRGB(w, h, random.nextInt());
+            }
+        }
+        return img;
+    }
+}
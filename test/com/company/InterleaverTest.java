@@ -0,0 +1,152 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class InterleaverTest
+{
+    /*
+     * Sizes that leave partial 64 × 64 tiles in every direction, and a single tile.
+     */
+    static Stream<Arguments> blockSizes()
+    {
+        return Stream.of(Arguments.of(7, 13), Arguments.of(65, 130), Arguments.of(33, 200), Arguments.of(64, 64),
+                         Arguments.of(1, 1));
+    }
+
+    /*
+     * Branches and depth, up to the most branches a tile holds.
+     */
+    static Stream<Arguments> convolutionalSizes()
+    {
+        return Stream.of(Arguments.of(7, 13), Arguments.of(33, 200), Arguments.of(64, 3), Arguments.of(1, 5));
+    }
+
+    @ParameterizedTest
+    @MethodSource("blockSizes")
+    void blocksAreSentColumnAfterColumn(int rows, int cols)
+    {
+        BlockInterleaver interleaver = new BlockInterleaver(rows, cols);
+        int blockBits = rows * cols;
+        BitBuffer bits = randomBits(3 * blockBits + blockBits / 2, rows);
+        BitBuffer sent = feed(interleaver.interleaver(), bits, null);
+
+        assertEquals(bits.length(), sent.length());
+        for (int i = 0; i < bits.length(); ++i) {
+            int block = i / blockBits;
+            int expected = i;
+            if (block < 3) {
+                int r = i % blockBits / cols;
+                int c = i % blockBits % cols;
+                expected = block * blockBits + c * rows + r;
+            }
+            assertEquals(bits.get(i), sent.get(expected), "bit " + i);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("blockSizes")
+    void blockDeinterleaverUndoesTheInterleaver(int rows, int cols)
+    {
+        assertRoundTrip(new BlockInterleaver(rows, cols), 3 * rows * cols + cols + 1, 0);
+    }
+
+    @ParameterizedTest
+    @MethodSource("convolutionalSizes")
+    void branchesAreDelayedByTheirDepth(int branches, int depth)
+    {
+        ConvolutionalInterleaver interleaver = new ConvolutionalInterleaver(branches, depth);
+        BitBuffer bits = randomBits(2 * interleaver.latency() + 3 * branches + 1, branches);
+        BitBuffer sent = feed(interleaver.interleaver(), bits, null);
+
+        assertEquals(bits.length() + interleaver.latency(), sent.length());
+        for (int i = 0; i < bits.length(); ++i) {
+            assertEquals(bits.get(i), sent.get(i + i % branches * depth * branches), "bit " + i);
+        }
+        assertEquals(ones(bits), ones(sent), "only 0s fill the delay lines");
+    }
+
+    @ParameterizedTest
+    @MethodSource("convolutionalSizes")
+    void convolutionalDeinterleaverUndoesTheInterleaver(int branches, int depth)
+    {
+        ConvolutionalInterleaver interleaver = new ConvolutionalInterleaver(branches, depth);
+        assertRoundTrip(interleaver, 2 * interleaver.latency() + 5 * branches + 3, interleaver.latency());
+    }
+
+    @Test
+    void packedInterleaversUnpackEqual()
+    {
+        assertEquals("block 65x130", IInterleaver.unpack(new BlockInterleaver(65, 130).pack()).toString());
+        assertEquals("convolutional 33x200", IInterleaver.unpack(new ConvolutionalInterleaver(33, 200).pack()).toString());
+        assertNull(IInterleaver.unpack(0));
+    }
+
+    /*
+     * Interleave and deinterleave count random bits, whole and in random pieces: every way must give back the bits,
+     * and the pieces must give the same channel bits as the whole stream.
+     */
+    private static void assertRoundTrip(IInterleaver interleaver, int count, int latency)
+    {
+        BitBuffer bits = randomBits(count, count);
+        BitBuffer whole = feed(interleaver.interleaver(), bits, null);
+        assertEquals(count + latency, whole.length(), interleaver + ", channel bits");
+        assertEquals(bits.toString(), feed(interleaver.deinterleaver(), whole, null).toString(), interleaver + ", whole");
+
+        // the same stages again, so the state end() leaves behind is covered too:
+        IBitStage sender = interleaver.interleaver();
+        IBitStage receiver = interleaver.deinterleaver();
+        for (long seed = 1; seed <= 3; ++seed) {
+            Random random = new Random(seed);
+            BitBuffer sent = feed(sender, bits, random);
+            assertEquals(whole.toString(), sent.toString(), interleaver + ", channel bits in pieces, seed " + seed);
+            assertEquals(bits.toString(), feed(receiver, sent, random).toString(), interleaver + ", pieces, seed " + seed);
+        }
+    }
+
+    /*
+     * Feed one whole stream through stage, in one piece if random is null, else in random pieces of up to 300 bits.
+     */
+    private static BitBuffer feed(IBitStage stage, BitBuffer in, Random random)
+    {
+        BitBuffer out = new BitBuffer();
+        if (random == null) {
+            stage.process(in, out);
+        } else {
+            for (int from = 0; from < in.length(); ) {
+                int count = Math.min(in.length() - from, random.nextInt(300) + (random.nextInt(4) == 0 ? 0 : 1));
+                stage.process(in, from, count, out);
+                from += count;
+            }
+        }
+        stage.end(out);
+        return out;
+    }
+
+    private static int ones(BitBuffer bits)
+    {
+        int ones = 0;
+        for (int i = 0; i < bits.length(); ++i) {
+            ones += bits.get(i);
+        }
+        return ones;
+    }
+
+    private static BitBuffer randomBits(int count, long seed)
+    {
+        Random random = new Random(seed);
+        BitBuffer bits = new BitBuffer(count);
+        for (int i = 0; i < count; ++i) {
+            bits.append(random.nextInt(2));
+        }
+        return bits;
+    }
+}
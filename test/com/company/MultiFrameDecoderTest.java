@@ -0,0 +1,99 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Every frame must decode to the same bits as ViterbiDecoder gives for it alone.
+ */
+class MultiFrameDecoderTest
+{
+    private static final int HEIGHT = 7;
+    private static final int WIDTH  = 11;
+
+    static Stream<Arguments> codesAndDepths()
+    {
+        return Stream.of("is95", "is95-half", "k7", "5:23,35")
+                     .flatMap(code -> IntStream.of(8, 21, 60).mapToObj(depth -> Arguments.of(code, depth)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("codesAndDepths")
+    void fullAndPartialBatchesDecodeLikeViterbiDecoder(String code, int depth)
+    {
+        IEncoder encoder = ConvolutionalEncoder.forName(code);
+        List<BitBuffer> frames = noisyFrames(encoder, MultiFrameDecoder.LANES + 3, false);
+        assertDecodesLikeViterbiDecoder(encoder, depth, null, frames);
+    }
+
+    @ParameterizedTest
+    @MethodSource("codesAndDepths")
+    void framesOfUnequalLengthDecodeLikeViterbiDecoder(String code, int depth)
+    {
+        IEncoder encoder = ConvolutionalEncoder.forName(code);
+        assertDecodesLikeViterbiDecoder(encoder, depth, null, noisyFrames(encoder, 5, true));
+    }
+
+    @Test
+    void puncturedFramesDecodeLikeViterbiDecoder()
+    {
+        IEncoder encoder = new EncoderIS95();
+        PuncturePattern pattern = PuncturePattern.forRate(encoder, "3/4");
+        List<BitBuffer> frames = new ArrayList<>();
+        for (BitBuffer frame : noisyFrames(encoder, 6, true)) {
+            BitBuffer punctured = new BitBuffer();
+            pattern.puncture(frame, 0, frame.length(), punctured);
+            BitBuffer received = new BitBuffer();
+            pattern.depuncture(punctured, 0, punctured.length(), received);
+            received.truncate(frame.length());
+            frames.add(received);
+        }
+        assertDecodesLikeViterbiDecoder(encoder, 60, pattern, frames);
+    }
+
+    private static void assertDecodesLikeViterbiDecoder(IEncoder encoder, int depth, PuncturePattern pattern, List<BitBuffer> frames)
+    {
+        MultiFrameDecoder multiFrameDecoder = new MultiFrameDecoder(encoder);
+        multiFrameDecoder.setDecodingDepth(depth);
+        multiFrameDecoder.setPuncturing(pattern);
+        List<BitBuffer> decoded = multiFrameDecoder.decodeAll(frames, WIDTH * HEIGHT);
+
+        ViterbiDecoder viterbiDecoder = new ViterbiDecoder(encoder);
+        viterbiDecoder.setDecodingDepth(depth);
+        viterbiDecoder.setPuncturing(pattern);
+        assertEquals(frames.size(), decoded.size());
+        for (int f = 0; f < frames.size(); ++f) {
+            String expected = viterbiDecoder.decodeIS95(frames.get(f), WIDTH * HEIGHT).toString();
+            assertEquals(expected, decoded.get(f).toString(), "frame " + f + " of " + frames.size() + ", depth " + depth);
+        }
+    }
+
+    /*
+     * Code-text of count random images with 2 % of the bits flipped, cut short by up to a few pixels if unequal.
+     */
+    private static List<BitBuffer> noisyFrames(IEncoder encoder, int count, boolean unequal)
+    {
+        Random random = new Random(count);
+        List<BitBuffer> frames = new ArrayList<>(count);
+        for (int f = 0; f < count; ++f) {
+            BitBuffer frame = new BitBuffer();
+            encoder.encode(TestImages.random(WIDTH, HEIGHT, f), frame);
+            NoiseGenerator noiseGenerator = new NoiseGenerator(f);
+            noiseGenerator.setErrorRate(200);
+            noiseGenerator.noisifyChunk(frame);
+            if (unequal) frame.truncate(frame.length() - random.nextInt(3 * ViterbiBMP.BITS_PER_PIXEL) * encoder.outputLength());
+            frames.add(frame);
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,60 @@
+package com.company;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelViterbiDecoderTest
+{
+    private static final int HEIGHT = 13;
+    private static final int WIDTH  = 21;
+
+    /*
+     * Workers, segment length and overlap, including batches shorter than the overlap and exactly as long.
+     */
+    static Stream<Arguments> layouts()
+    {
+        return Stream.of(Arguments.of(1, 1, 40),
+                         Arguments.of(1, 10, 64),
+                         Arguments.of(1, 64, 64),
+                         Arguments.of(2, 7, 60),
+                         Arguments.of(3, 20, 60),
+                         Arguments.of(4, 16, 64),
+                         Arguments.of(4, 100, 40));
+    }
+
+    @ParameterizedTest
+    @MethodSource("layouts")
+    void decodesLikeTheSlidingDecoder(int parallelism, int segmentLength, int overlap)
+    {
+        IEncoder encoder = new EncoderIS95();
+        BufferedImage img = TestImages.random(WIDTH, HEIGHT, 5);
+        BitBuffer received = new BitBuffer();
+        encoder.encode(img, received);
+        NoiseGenerator noiseGenerator = new NoiseGenerator(5);
+        noiseGenerator.setErrorRate(100);
+        noiseGenerator.noisifyChunk(received);
+
+        SlidingViterbiDecoder sliding = new SlidingViterbiDecoder(encoder);
+        sliding.setDecodingDepth(overlap);
+        String expected = sliding.decodeIS95(received, WIDTH * HEIGHT).toString();
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            ParallelViterbiDecoder parallel = new ParallelViterbiDecoder(encoder, pool);
+            parallel.setOverlap(overlap);
+            parallel.setSegmentLength(segmentLength);
+            String layout = parallelism + " workers, segments of " + segmentLength + ", overlap " + overlap;
+            assertEquals(expected, parallel.decodeIS95(received, WIDTH * HEIGHT).toString(), layout);
+            assertEquals(expected, parallel.decodeIS95(received, WIDTH * HEIGHT).toString(), layout + ", second stream");
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.awt.image.BufferedImage;
+import java.security.InvalidParameterException;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PuncturePatternTest
+{
+    private static final int HEIGHT = 16;
+    private static final int WIDTH  = 16;
+
+    /*
+     * Every code and rate forRate() has a pattern for.
+     */
+    static Stream<Arguments> knownPatterns()
+    {
+        return Stream.of("is95", "is95-half", "k7")
+                     .flatMap(code -> Stream.of("2/3", "3/4").map(rate -> Arguments.of(code, rate)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("knownPatterns")
+    void depunctureRestoresTheKeptBits(String code, String rate)
+    {
+        PuncturePattern pattern = PuncturePattern.forRate(ConvolutionalEncoder.forName(code), rate);
+        Random random = new Random(7);
+        for (int count : new int[] {0, 1, pattern.periodBits() - 1, pattern.periodBits(), 1000, 1001 + pattern.outputLength()}) {
+            BitBuffer bits = new BitBuffer(count);
+            for (int i = 0; i < count; ++i) {
+                bits.append(random.nextInt(2));
+            }
+
+            BitBuffer punctured = new BitBuffer();
+            pattern.puncture(bits, 0, count, punctured);
+            assertEquals(pattern.puncturedLength(count), punctured.length(), code + " " + rate + ", " + count + " bits");
+
+            BitBuffer depunctured = new BitBuffer();
+            pattern.depuncture(punctured, 0, punctured.length(), depunctured);
+            assertEquals(0, depunctured.length() % pattern.outputLength(), "whole symbols");
+            for (int i = 0; i < count; ++i) {
+                boolean kept = pattern.toString().charAt(i % pattern.periodBits()) == '1';
+                assertEquals(kept ? bits.get(i) : 0, depunctured.get(i), code + " " + rate + ", bit " + i + " of " + count);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("knownPatterns")
+    void stagesMatchTheWholeStream(String code, String rate)
+    {
+        PuncturePattern pattern = PuncturePattern.forRate(ConvolutionalEncoder.forName(code), rate);
+        Random random = new Random(8);
+        BitBuffer bits = new BitBuffer();
+        for (int i = 0; i < 5000; ++i) {
+            bits.append(random.nextInt(2));
+        }
+        BitBuffer whole = new BitBuffer();
+        pattern.puncture(bits, 0, bits.length(), whole);
+
+        IBitStage puncturer = pattern.puncturer();
+        BitBuffer pieces = new BitBuffer();
+        for (int from = 0; from < bits.length(); ) {
+            int count = Math.min(bits.length() - from, 1 + random.nextInt(100));
+            puncturer.process(bits, from, count, pieces);
+            from += count;
+        }
+        puncturer.end(pieces);
+        assertEquals(whole.toString(), pieces.toString());
+    }
+
+    @ParameterizedTest
+    @MethodSource("knownPatterns")
+    void noiselessCodeTextDecodesWithoutErrors(String code, String rate)
+    {
+        IEncoder encoder = ConvolutionalEncoder.forName(code);
+        PuncturePattern pattern = PuncturePattern.forRate(encoder, rate);
+        BufferedImage img = TestImages.random(WIDTH, HEIGHT, 3);
+        BitBuffer codeBits = new BitBuffer();
+        encoder.encode(img, codeBits);
+        BitBuffer punctured = new BitBuffer();
+        pattern.puncture(codeBits, 0, codeBits.length(), punctured);
+        BitBuffer received = new BitBuffer();
+        pattern.depuncture(punctured, 0, punctured.length(), received);
+
+        String expected = TestImages.plainBits(img).toString();
+        for (SymbolStreamDecoder decoder : new SymbolStreamDecoder[] {new ViterbiDecoder(encoder), new SlidingViterbiDecoder(encoder)}) {
+            decoder.setDecodingDepth(60);
+            decoder.setPuncturing(pattern);
+            BitBuffer decoded = decoder.decodeIS95(received, WIDTH * HEIGHT);
+            assertEquals(expected, decoded.toString(), decoder.getClass().getSimpleName() + ", " + code + " at " + rate);
+        }
+    }
+
+    @Test
+    void codesWithoutAKnownPatternAreRejected()
+    {
+        assertThrows(InvalidParameterException.class, () -> PuncturePattern.forRate(ConvolutionalEncoder.forName("7:133,171"), "2/3"));
+        assertThrows(InvalidParameterException.class, () -> PuncturePattern.forRate(ConvolutionalEncoder.forName("5:23,35"), "3/4"));
+        assertThrows(InvalidParameterException.class, () -> PuncturePattern.forRate(ConvolutionalEncoder.forName("k7"), "5/6"));
+    }
+
+    @Test
+    void patternsOnlyFitCodesOfTheirSymbolLength()
+    {
+        PuncturePattern pattern = PuncturePattern.forRate(ConvolutionalEncoder.forName("k7"), "3/4");
+        assertDoesNotThrow(() -> pattern.checkFits(ConvolutionalEncoder.forName("is95-half")));
+        assertThrows(InvalidParameterException.class, () -> pattern.checkFits(new EncoderIS95()));
+        assertThrows(InvalidParameterException.class, () -> new SlidingViterbiDecoder(new EncoderIS95()).setPuncturing(pattern));
+    }
+}
@@ -0,0 +1,69 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.awt.image.BufferedImage;
+import java.security.InvalidParameterException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingViterbiDecoderTest
+{
+    private static final int HEIGHT    = 30;
+    private static final int MAX_DEPTH = 60;
+    private static final int WIDTH     = 40;
+
+    /*
+     * Codes, seeds and error rates per 10000 bits, from a clean channel to one the K = 7 code no longer corrects.
+     */
+    static Stream<Arguments> channels()
+    {
+        return Stream.of("is95", "k7")
+                     .flatMap(code -> IntStream.rangeClosed(1, 3).boxed()
+                     .flatMap(seed -> IntStream.of(0, 10, 50, 100, 200, 400)
+                     .mapToObj(rate -> Arguments.of(code, seed, rate))));
+    }
+
+    @ParameterizedTest
+    @MethodSource("channels")
+    void adaptiveDepthIsNeverWorseThanMaxDepth(String code, int seed, int errorRate)
+    {
+        IEncoder encoder = ConvolutionalEncoder.forName(code);
+        BufferedImage img = TestImages.random(WIDTH, HEIGHT, seed);
+        BitBuffer received = new BitBuffer();
+        encoder.encode(img, received);
+        NoiseGenerator noiseGenerator = new NoiseGenerator(seed);
+        noiseGenerator.setErrorRate(errorRate);
+        noiseGenerator.noisifyChunk(received);
+        BitBuffer expected = TestImages.plainBits(img);
+
+        SlidingViterbiDecoder fixed = new SlidingViterbiDecoder(encoder);
+        fixed.setDecodingDepth(MAX_DEPTH);
+        long fixedErrors = fixed.decodeIS95(received, WIDTH * HEIGHT).countDifferences(expected);
+
+        int min = 2 * encoder.delay();
+        for (int[] thresholds : new int[][] {{0, 1}, {100, 2}, {200, 4}}) {
+            SlidingViterbiDecoder adaptive = new SlidingViterbiDecoder(encoder);
+            adaptive.setAdaptiveDepth(min, MAX_DEPTH, thresholds[0], thresholds[1]);
+            long adaptiveErrors = adaptive.decodeIS95(received, WIDTH * HEIGHT).countDifferences(expected);
+            assertTrue(adaptiveErrors <= fixedErrors,
+                       code + ", seed " + seed + ", error rate " + errorRate + ", thresholds " + thresholds[0] + "/" + thresholds[1] +
+                       ": " + adaptiveErrors + " errors adaptive, " + fixedErrors + " at depth " + MAX_DEPTH);
+        }
+    }
+
+    @Test
+    void adaptiveThresholdsAreChecked()
+    {
+        SlidingViterbiDecoder decoder = new SlidingViterbiDecoder(new EncoderIS95());
+        assertThrows(InvalidParameterException.class, () -> decoder.setAdaptiveDepth(20, 60, -1, 1));
+        assertThrows(InvalidParameterException.class, () -> decoder.setAdaptiveDepth(20, 60, 10001, 1));
+        assertThrows(InvalidParameterException.class, () -> decoder.setAdaptiveDepth(20, 60, 0, 0));
+    }
+}
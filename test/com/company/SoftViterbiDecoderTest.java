@@ -0,0 +1,101 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SoftViterbiDecoderTest
+{
+    private static final int DEPTH  = 60;
+    private static final int HEIGHT = 20;
+    private static final int WIDTH  = 30;
+
+    private final IEncoder      encoder  = new EncoderIS95();
+    private final BufferedImage img      = TestImages.random(WIDTH, HEIGHT, 11);
+    private final BitBuffer     codeBits = codeBits();
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4})
+    void noiselessSoftValuesDecodeExactly(int quantizationBits)
+    {
+        AwgnNoiseGenerator channel = new AwgnNoiseGenerator(1);
+        channel.setErrorRate(0);
+        channel.setQuantizationBits(quantizationBits);
+        SoftBuffer received = channel.noisifySoft(codeBits, new SoftBuffer(quantizationBits));
+
+        assertEquals(TestImages.plainBits(img).toString(), decode(received).toString());
+    }
+
+    @Test
+    void oneBitSoftDecodingIsHardDecoding()
+    {
+        BitBuffer hard = new BitBuffer();
+        hard.append(codeBits);
+        NoiseGenerator noiseGenerator = new NoiseGenerator(2);
+        noiseGenerator.setErrorRate(500);
+        noiseGenerator.noisifyChunk(hard);
+        SoftBuffer soft = new SoftBuffer(1, hard.length());
+        for (int i = 0; i < hard.length(); ++i) {
+            soft.append(hard.get(i));
+        }
+
+        SlidingViterbiDecoder hardDecoder = new SlidingViterbiDecoder(encoder);
+        hardDecoder.setDecodingDepth(DEPTH);
+        assertEquals(hardDecoder.decodeIS95(hard, WIDTH * HEIGHT).toString(), decode(soft).toString());
+    }
+
+    @Test
+    void moreQuantizationBitsLeaveFewerErrors()
+    {
+        BitBuffer plainBits = TestImages.plainBits(img);
+        long[] errors = new long[2];
+        int[] quantizationBits = {1, 3};
+        for (int i = 0; i < quantizationBits.length; ++i) {
+            AwgnNoiseGenerator channel = new AwgnNoiseGenerator(3);  // the same noise for both
+            channel.setErrorRate(1000);
+            channel.setQuantizationBits(quantizationBits[i]);
+            SoftBuffer received = channel.noisifySoft(codeBits, new SoftBuffer(quantizationBits[i]));
+            errors[i] = decode(received).countDifferences(plainBits);
+        }
+        assertTrue(errors[1] < errors[0], errors[1] + " residual errors at q = 3, " + errors[0] + " at q = 1");
+    }
+
+    @Test
+    void asciiFormKeepsTheValues() throws IOException
+    {
+        AwgnNoiseGenerator channel = new AwgnNoiseGenerator(4);
+        channel.setErrorRate(1000);
+        channel.setQuantizationBits(4);
+        SoftBuffer soft = channel.noisifySoft(codeBits, new SoftBuffer(4));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        soft.writeAscii(out);
+        SoftBuffer read = SoftBuffer.readAscii(new ByteArrayInputStream(out.toByteArray()), 4);
+        assertEquals(soft.length(), read.length());
+        for (int i = 0; i < soft.length(); ++i) {
+            assertEquals(soft.get(i), read.get(i), "value " + i);
+        }
+    }
+
+    private BitBuffer codeBits()
+    {
+        BitBuffer bits = new BitBuffer();
+        encoder.encode(img, bits);
+        return bits;
+    }
+
+    private BitBuffer decode(SoftBuffer received)
+    {
+        ISoftDecoder decoder = new SoftViterbiDecoder(encoder);
+        decoder.setDecodingDepth(DEPTH);
+        return decoder.decodeIS95(received, WIDTH * HEIGHT);
+    }
+}
@@ -0,0 +1,35 @@
+package com.company;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Images for the tests. Pixels are random so the decoders see every kind of transition,
+ * and the same seed always gives the same image.
+ */
+final class TestImages
+{
+    private TestImages() {}
+
+    static BufferedImage random(int width, int height, long seed)
+    {
+        Random random = new Random(seed);
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int h = 0; h < height; ++h) {
+            for (int w = 0; w < width; ++w) {
+                img.setRGB(w, h, random.nextInt());
+            }
+        }
+        return img;
+    }
+
+    /**
+     * @return Plain-text bits of the image, what every decoder must give back
+     */
+    static BitBuffer plainBits(BufferedImage img)
+    {
+        BitBuffer plainBits = new BitBuffer();
+        new PlainEncoder().encode(img, plainBits);
+        return plainBits;
+    }
+}
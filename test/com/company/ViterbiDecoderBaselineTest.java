@@ -0,0 +1,92 @@
+package com.company;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Every ACS engine must decode noisy code-text bit for bit like the decoder did before AcsEngine,
+ * ties included: the same plain-text and the same full path metric at every decoding depth.
+ */
+class ViterbiDecoderBaselineTest
+{
+    private static final int[] DEPTHS = {8, 13, 32, 60};
+    private static final int   HEIGHT = 11;
+    private static final int   WIDTH  = 37;
+
+    private final IEncoder encoder  = new EncoderIS95();
+    private final byte[]   codeText = noisyCodeText(encoder, 15, 1);
+
+    @Test
+    void scalarEngineMatchesBaseline()
+    {
+        assertMatchesBaseline(Integer.SIZE, false);
+        assertMatchesBaseline(Integer.SIZE, true);
+    }
+
+    @Test
+    void vectorEngineMatchesBaseline()
+    {
+        assumeTrue(AcsEngine.create(encoder, StateTransitionLUT.of(encoder), Short.SIZE) instanceof VectorAcsEngine,
+                   "no vector engine for this CPU's vector width");
+        assertMatchesBaseline(Short.SIZE, false);
+        assertMatchesBaseline(Short.SIZE, true);
+    }
+
+    @Test
+    void vectorEngineMatchesBaselineOnK7()
+    {
+        IEncoder k7 = ConvolutionalEncoder.k7RateHalf();
+        assumeTrue(AcsEngine.create(k7, StateTransitionLUT.of(k7), Short.SIZE) instanceof VectorAcsEngine,
+                   "no vector engine for this CPU's vector width");
+        assertMatchesBaseline(k7, noisyCodeText(k7, 15, 2), Short.SIZE, false);
+        assertMatchesBaseline(k7, noisyCodeText(k7, 15, 2), Short.SIZE, true);
+    }
+
+    @Test
+    void narrowEngineMatchesBaseline()
+    {
+        assertMatchesBaseline(Byte.SIZE, true);
+    }
+
+    private void assertMatchesBaseline(int metricBits, boolean packedSurvivors)
+    {
+        assertMatchesBaseline(encoder, codeText, metricBits, packedSurvivors);
+    }
+
+    private static void assertMatchesBaseline(IEncoder encoder, byte[] codeText, int metricBits, boolean packedSurvivors)
+    {
+        for (int depth : DEPTHS) {
+            BaselineViterbiDecoder baseline = new BaselineViterbiDecoder(encoder);
+            baseline.setDecodingDepth(depth);
+            byte[] expected = baseline.decodeIS95(codeText, WIDTH * HEIGHT);
+
+            ViterbiDecoder decoder = new ViterbiDecoder(encoder);
+            decoder.setMetricBits(metricBits);
+            decoder.setPackedSurvivors(packedSurvivors);
+            decoder.setDecodingDepth(depth);
+            byte[] actual = decoder.decodeIS95(codeText, WIDTH * HEIGHT);
+
+            String engine = metricBits + " bit metrics" + (packedSurvivors ? ", packed" : "") + ", depth " + depth;
+            assertArrayEquals(expected, actual, engine);
+            assertEquals(baseline.fullPathMetric(), decoder.fullPathMetric(), engine);
+        }
+    }
+
+    /*
+     * '0'/'1' code-text of a random image with about perMille of its bits flipped.
+     */
+    private static byte[] noisyCodeText(IEncoder encoder, int perMille, long seed)
+    {
+        Random random = new Random(seed);
+        byte[] codeText = encoder.encode(TestImages.random(WIDTH, HEIGHT, seed)).getBytes();
+        for (int i = 0; i < codeText.length; ++i) {
+            if (random.nextInt(1000) < perMille) codeText[i] ^= '0' ^ '1';
+        }
+        return codeText;
+    }
+}